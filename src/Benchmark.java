@@ -0,0 +1,580 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Regression benchmark: searches a fixed suite of positions on several board geometries with every engine mode,
+ * checks the moves and values found, and compares what the searches cost against a baseline file. Small positions are
+ * checked against a brute force solver over a plain array of cells, which tries every empty cell and shares
+ * nothing with the engine, not even the board. The geometry set in ILayout is played on Board, the others on a
+ * SparseBoard of their own size.
+ * <p>
+ * The baseline holds the nodes searched, the time taken and the bytes allocated for every position and mode (for
+ * example 4x4x4-empty.alpha-beta.nodes), plus the time iterative deepening took to complete each depth (for example
+ * 4x4x4-empty.iterative.depth5.millis). Each metric has its allowed regression, as a fraction of the baseline
+ * (threshold.nodes, threshold.millis, threshold.bytes) and an absolute slack (threshold.nodes.slack and so on).
+ * Node counts are the same on every machine, and so is the allocation of a single thread on the same JVM, so they
+ * are always compared. Times are only compared on the host the baseline was recorded on (the host entry), with a
+ * loose threshold, as they depend on the machine and its load.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class Benchmark
+{
+    private static final String DEFAULT_BASELINE = "benchmark.properties";
+    private static final String[] METRICS = {"nodes", "millis", "bytes"};
+    private static final String[] DEFAULT_THRESHOLDS = {"0.02", "1.0", "0.1"};
+    private static final String[] DEFAULT_SLACKS = {"0", "50", "16384"};
+    private static final String[] MODES = {"alpha-beta", "lmr", "lmr+futility", "iterative", "endgame"};
+    private static final int TRANSPOSITION_TABLE_BITS = 20;
+    private static final int REFERENCE_MAX_EMPTY = 10;
+    private static final int ENDGAME_EMPTY_CELLS = 12;
+    private static final int RUNS = 3;
+
+    /** Proven value of a position, from X's point of view. */
+    private static final int O_WINS = -1;
+    private static final int DRAW = 0;
+    private static final int X_WINS = 1;
+    private static final int UNKNOWN = 2;
+
+    /** Reference value of a cell that isn't a move. */
+    private static final int NOT_A_MOVE = Integer.MIN_VALUE;
+
+    private static final Position[] SUITE = {
+            new Position("3x3x3-empty", 3, 3, 3, 0, DRAW),
+            new Position("3x3x3-edge", 3, 3, 3, 0, X_WINS, 4, 1),
+            new Position("4x4x4-empty", 4, 4, 4, 0, DRAW),
+            new Position("4x4x4-endgame-a", 4, 4, 4, 0, UNKNOWN, 10, 5, 0, 12, 3, 8),
+            new Position("4x4x4-endgame-b", 4, 4, 4, 0, UNKNOWN, 13, 5, 7, 14, 10, 2),
+            new Position("4x4x4-endgame-c", 4, 4, 4, 0, UNKNOWN, 3, 12, 1, 6, 2, 0),
+            new Position("5x5x4-opening", 5, 5, 4, 5, UNKNOWN, 12),
+            new Position("5x5x4-endgame-a", 5, 5, 4, 0, UNKNOWN, 14, 9, 21, 22, 3, 24, 6, 11, 17, 23, 4, 20, 10, 7, 13),
+            new Position("5x5x4-endgame-b", 5, 5, 4, 0, UNKNOWN, 24, 13, 3, 22, 12, 9, 19, 15, 21, 23, 14, 6, 10, 2, 7),
+            new Position("5x5x4-endgame-c", 5, 5, 4, 0, UNKNOWN, 8, 7, 6, 10, 12, 24, 15, 20, 19, 2, 21, 14, 13, 9, 17),
+            new Position("7x7x5-opening", 7, 7, 5, 4, UNKNOWN, 24, 25),
+            // O must block the four on the third row.
+            new Position("7x7x5-block", 7, 7, 5, 4, UNKNOWN, 15, 14, 16, 30, 17, 31, 18).bestMoves(19),
+            new Position("15x15x5-opening", 15, 15, 5, 3, UNKNOWN, 112, 113, 128),
+            // X turns the open three on the middle row into an open four.
+            new Position("15x15x5-open-three", 15, 15, 5, 4, X_WINS, 111, 140, 112, 142, 113, 170),
+            // O must block the four on the middle row, already blocked on the left.
+            new Position("15x15x5-block", 15, 15, 5, 4, UNKNOWN, 110, 109, 111, 140, 112, 141, 113).bestMoves(114),
+    };
+
+    /**
+     * A suite position
+     * @author Alexandre Rodrigues
+     * @version 1.0 29/11/2023
+     */
+    private static class Position
+    {
+        private final String name;
+        private final int rows;
+        private final int columns;
+        private final int winConditionLength;
+        private final int depth;
+        private final int value;
+        private final int[] moves;
+        private int[] bestMoves;
+
+        /**
+         * Creates a new position
+         * @param name name used in the report and the baseline
+         * @param rows number of rows
+         * @param columns number of columns
+         * @param winConditionLength number of stones in a row needed to win
+         * @param depth search depth limit, 0 to search to the end of the game
+         * @param value proven value of the position, UNKNOWN if not known beforehand
+         * @param moves moves leading to the position from the empty board
+         */
+        private Position(String name, int rows, int columns, int winConditionLength, int depth, int value, int... moves)
+        {
+            this.name = name;
+            this.rows = rows;
+            this.columns = columns;
+            this.winConditionLength = winConditionLength;
+            this.depth = depth > 0 ? depth : rows * columns - moves.length;
+            this.value = value;
+            this.moves = moves;
+        }
+
+        /**
+         * @param bestMoves the moves known to be best, one of which the engine must play
+         * @return this position
+         */
+        private Position bestMoves(int... bestMoves)
+        {
+            this.bestMoves = bestMoves;
+            return this;
+        }
+
+        /**
+         * @return a new board with the position set up
+         */
+        private ILayout create()
+        {
+            ILayout board;
+            if (this.rows == ILayout.ROWS && this.columns == ILayout.COLUMNS && this.winConditionLength == ILayout.WIN_CONDITION_LENGTH)
+                board = new Board();
+            else
+                board = new SparseBoard(this.rows, this.columns, this.winConditionLength);
+            for (int move : this.moves)
+                board.move(move);
+            return board;
+        }
+
+        /**
+         * @return the position on the brute force solver's board
+         */
+        private Reference createReference()
+        {
+            Reference reference = new Reference(this.rows, this.columns, this.winConditionLength);
+            for (int move : this.moves)
+                reference.move(move);
+            return reference;
+        }
+
+        /**
+         * @return true if the brute force solver can check this position
+         */
+        private boolean hasReference()
+        {
+            return this.rows * this.columns - this.moves.length <= REFERENCE_MAX_EMPTY;
+        }
+    }
+
+    /**
+     * Brute force solver over a plain array of cells. Every empty cell is tried on every move and wins are found by
+     * walking the lines through the last stone, so it shares neither move generation nor win detection with the
+     * engine. Scores use the engine's scale: MAX_EVALUATION (MIN_EVALUATION) less the plies to X's (O's) win, 0 for a draw.
+     * @author Alexandre Rodrigues
+     * @version 1.0 29/11/2023
+     */
+    static class Reference
+    {
+        private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+        private final int rows;
+        private final int columns;
+        private final int winConditionLength;
+        private final ILayout.ID[] cells;
+        private int moveCount;
+
+        /**
+         * Creates an empty board
+         * @param rows number of rows
+         * @param columns number of columns
+         * @param winConditionLength number of stones in a row needed to win
+         */
+        Reference(int rows, int columns, int winConditionLength)
+        {
+            this.rows = rows;
+            this.columns = columns;
+            this.winConditionLength = winConditionLength;
+            this.cells = new ILayout.ID[rows * columns];
+            Arrays.fill(this.cells, ILayout.ID.Blank);
+        }
+
+        /**
+         * Places the stone of the player at turn
+         * @param index cell, which must be empty
+         */
+        void move(int index)
+        {
+            this.cells[index] = this.moveCount % 2 == 0 ? ILayout.ID.X : ILayout.ID.O;
+            this.moveCount++;
+        }
+
+        /**
+         * Takes a stone back
+         * @param index cell of the last stone placed
+         */
+        private void undoMove(int index)
+        {
+            this.cells[index] = ILayout.ID.Blank;
+            this.moveCount--;
+        }
+
+        /**
+         * @param index cell holding a stone
+         * @return true if the stone completes a line of winConditionLength stones
+         */
+        private boolean isWin(int index)
+        {
+            int x = index % this.columns;
+            int y = index / this.columns;
+            for (int[] direction : DIRECTIONS)
+            {
+                int stones = 1;
+                for (int sign = -1; sign <= 1; sign += 2)
+                    for (int i = 1; ; i++)
+                    {
+                        int cx = x + sign * i * direction[0];
+                        int cy = y + sign * i * direction[1];
+                        if (cx < 0 || cx >= this.columns || cy < 0 || cy >= this.rows ||
+                                this.cells[cy * this.columns + cx] != this.cells[index])
+                            break;
+                        stones++;
+                    }
+                if (stones >= this.winConditionLength)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Solves every move of the position, which must not be over
+         * @return score of the position after each cell (NOT_A_MOVE for the cells that aren't moves),
+         * then the score of the position
+         */
+        int[] solveMoves()
+        {
+            int[] scores = new int[this.cells.length + 1];
+            Arrays.fill(scores, NOT_A_MOVE);
+            boolean isMax = this.moveCount % 2 == 0;
+            int best = isMax ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            for (int index = 0; index < this.cells.length; index++)
+            {
+                if (this.cells[index] != ILayout.ID.Blank)
+                    continue;
+                this.move(index);
+                scores[index] = this.solve(index, 1, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                this.undoMove(index);
+                best = isMax ? Math.max(best, scores[index]) : Math.min(best, scores[index]);
+            }
+            scores[this.cells.length] = best;
+            return scores;
+        }
+
+        /**
+         * Plain alpha-beta search with no move ordering, tables nor evaluation
+         * @param last cell of the last stone placed
+         * @param ply number of stones placed since the position being solved
+         * @param alpha alpha value
+         * @param beta beta value
+         * @return score of the position
+         */
+        private int solve(int last, int ply, int alpha, int beta)
+        {
+            if (this.isWin(last))
+                return this.cells[last] == ILayout.ID.X ? ILayout.MAX_EVALUATION - ply : ILayout.MIN_EVALUATION + ply;
+            if (this.moveCount == this.cells.length)
+                return 0;
+
+            boolean isMax = this.moveCount % 2 == 0;
+            for (int index = 0; index < this.cells.length && alpha < beta; index++)
+            {
+                if (this.cells[index] != ILayout.ID.Blank)
+                    continue;
+                this.move(index);
+                int score = this.solve(index, ply + 1, alpha, beta);
+                this.undoMove(index);
+                if (isMax)
+                    alpha = Math.max(alpha, score);
+                else
+                    beta = Math.min(beta, score);
+            }
+            return isMax ? alpha : beta;
+        }
+    }
+
+    private final Properties baseline;
+    private final boolean record;
+    private final Properties measured;
+    private final ThreadMXBean threads;
+    private final boolean compareTimes;
+    private int failures;
+
+    /**
+     * Creates a benchmark
+     * @param baseline baseline entries, empty to only check moves and values
+     * @param record true to only measure, keeping the thresholds of the baseline for the new one
+     */
+    private Benchmark(Properties baseline, boolean record)
+    {
+        this.baseline = baseline;
+        this.record = record;
+        this.measured = new Properties();
+        this.threads = ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < METRICS.length; i++)
+        {
+            this.measured.setProperty("threshold." + METRICS[i], baseline.getProperty("threshold." + METRICS[i], DEFAULT_THRESHOLDS[i]));
+            this.measured.setProperty("threshold." + METRICS[i] + ".slack",
+                    baseline.getProperty("threshold." + METRICS[i] + ".slack", DEFAULT_SLACKS[i]));
+        }
+
+        this.measured.setProperty("host", getHost());
+        this.compareTimes = this.measured.getProperty("host").equals(baseline.getProperty("host"));
+        if (!record && !baseline.isEmpty() && !this.compareTimes)
+            System.out.println("Baseline recorded on " + baseline.getProperty("host", "an unknown host") + ", not comparing times");
+    }
+
+    /**
+     * @return the machine and JVM running the benchmark, which times are only comparable on
+     */
+    private static String getHost()
+    {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        return name.substring(name.indexOf('@') + 1) + ", " + Runtime.getRuntime().availableProcessors() + " processors, " +
+                System.getProperty("os.arch") + ", Java " + System.getProperty("java.version");
+    }
+
+    /**
+     * Runs the whole suite, printing a line per position and mode
+     */
+    private void run()
+    {
+        for (Position position : SUITE)
+        {
+            int[] bestMoves = position.bestMoves;
+            int value = position.value;
+            int score = NOT_A_MOVE;
+            if (position.hasReference())
+            {
+                int[] scores = position.createReference().solveMoves();
+                bestMoves = bestOf(scores);
+                score = scores[scores.length - 1];
+                if (value != UNKNOWN && value != valueOf(score))
+                    this.fail(position.name, "reference solver says " + valueName(valueOf(score)) + ", suite says " + valueName(value));
+                value = valueOf(score);
+            }
+
+            for (String mode : MODES)
+                this.run(position, mode, bestMoves, value, score);
+        }
+    }
+
+    /**
+     * Searches a position with one engine mode, checks the result and compares its cost with the baseline
+     * @param position suite position
+     * @param mode engine mode
+     * @param bestMoves moves known to be best, or null if not known
+     * @param value proven value of the position, or UNKNOWN
+     * @param score exact score of the position found by the brute force solver, or NOT_A_MOVE if it wasn't solved
+     */
+    private void run(Position position, String mode, int[] bestMoves, int value, int score)
+    {
+        String name = position.name + "." + mode;
+        SearchResult result = null;
+        long nodes = 0;
+        long millis = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+        long[] timeToDepth = new long[position.depth];
+        Arrays.fill(timeToDepth, Long.MAX_VALUE);
+        int iterations = 0;
+        // One run to warm up, then the cheapest of RUNS.
+        for (int run = 0; run <= RUNS; run++)
+        {
+            ILayout board = position.create();
+            MiniMax miniMax = new MiniMax(TRANSPOSITION_TABLE_BITS);
+            miniMax.setLateMoveReductions(mode.startsWith("lmr"));
+            miniMax.setFutilityPruning(mode.equals("lmr+futility"));
+            miniMax.setEndgameSolver(mode.equals("endgame") ? ENDGAME_EMPTY_CELLS : 0);
+
+            // Collect the previous run's tables now rather than in the middle of this one.
+            System.gc();
+            long allocated = this.allocatedBytes();
+            long start = System.nanoTime();
+            result = mode.equals("iterative") ? miniMax.IterativeDeepeningMiniMax(board, position.depth) :
+                    miniMax.miniMax(board, position.depth);
+            long elapsed = System.nanoTime() - start;
+            allocated = this.allocatedBytes() - allocated;
+            // Positions the endgame solver took over are searched there, and count as well.
+            nodes = result.getNodes() + miniMax.getStatistics().getEndgameNodes();
+            iterations = miniMax.getStatistics().getIterations();
+            if (run > 0)
+            {
+                millis = Math.min(millis, elapsed / 1000000);
+                bytes = Math.min(bytes, allocated);
+                for (int depth = 1; depth <= iterations; depth++)
+                    timeToDepth[depth - 1] = Math.min(timeToDepth[depth - 1],
+                            miniMax.getStatistics().getTimeToDepth(depth) / 1000000);
+            }
+        }
+
+        System.out.printf("%-40s move %4d  score %11d  %9d nodes  %6d ms  %10d bytes%n", name, result.getBestMove(),
+                result.getScore(), nodes, millis, bytes);
+        if (bestMoves != null && !contains(bestMoves, result.getBestMove()))
+            this.fail(name, "played " + result.getBestMove() + ", expected one of " + Arrays.toString(bestMoves));
+        if (value != UNKNOWN && position.depth == position.rows * position.columns - position.moves.length && result.isProven() &&
+                valueOf(result.getScore()) != value)
+            this.fail(name, "proved " + valueName(valueOf(result.getScore())) + ", expected " + valueName(value));
+        if (value == X_WINS && !MiniMax.isWin(ILayout.ID.X, result.getScore()))
+            this.fail(name, "missed the win for X");
+        if (value == O_WINS && !MiniMax.isWin(ILayout.ID.O, result.getScore()))
+            this.fail(name, "missed the win for O");
+        if (score != NOT_A_MOVE && result.isProven() && result.getScore() != score)
+            this.fail(name, "proved score " + result.getScore() + ", expected " + score);
+
+        if (iterations > 0)
+        {
+            StringBuilder times = new StringBuilder();
+            for (int depth = 1; depth <= iterations; depth++)
+                times.append(' ').append(depth).append(':').append(timeToDepth[depth - 1]);
+            System.out.printf("%-40s time to depth (ms)%s%n", "", times);
+        }
+
+        long[] metrics = {nodes, millis, bytes};
+        for (int i = 0; i < METRICS.length; i++)
+            this.compare(name, METRICS[i], METRICS[i], metrics[i]);
+        for (int depth = 1; depth <= iterations; depth++)
+            this.compare(name, "depth" + depth + ".millis", "millis", timeToDepth[depth - 1]);
+    }
+
+    /**
+     * Records a measurement and checks it against the baseline
+     * @param name position and mode
+     * @param entry what was measured, the baseline key being the name followed by it
+     * @param metric the metric measured, whose threshold applies
+     * @param value measured value, negative if it couldn't be measured
+     */
+    private void compare(String name, String entry, String metric, long value)
+    {
+        if (value < 0)
+            return;
+        String key = name + "." + entry;
+        this.measured.setProperty(key, Long.toString(value));
+        String expected = this.baseline.getProperty(key);
+        if (this.record || expected == null || (metric.equals("millis") && !this.compareTimes))
+            return;
+
+        double threshold = Double.parseDouble(this.measured.getProperty("threshold." + metric));
+        long slack = Long.parseLong(this.measured.getProperty("threshold." + metric + ".slack"));
+        long limit = (long) (Long.parseLong(expected) * (1 + threshold)) + slack;
+        if (value > limit)
+            this.fail(name, entry + " regressed from " + expected + " to " + value + " (limit " + limit + ")");
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, or a negative number if the JVM can't tell
+     */
+    private long allocatedBytes()
+    {
+        if (this.threads instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) this.threads;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+                return threads.getCurrentThreadAllocatedBytes();
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Reports a failed check
+     * @param name position and mode
+     * @param message what went wrong
+     */
+    private void fail(String name, String message)
+    {
+        this.failures++;
+        System.out.println("FAIL " + name + ": " + message);
+    }
+
+    /**
+     * @param scores scores by cell, then the score of the position, as returned by Reference.solveMoves
+     * @return the moves that keep the score of the position
+     */
+    private static int[] bestOf(int[] scores)
+    {
+        int score = scores[scores.length - 1];
+        List<Integer> best = new ArrayList<>();
+        for (int move = 0; move < scores.length - 1; move++)
+            if (scores[move] == score)
+                best.add(move);
+        return best.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @param moves moves
+     * @param move move to look for
+     * @return true if the move is one of the moves
+     */
+    private static boolean contains(int[] moves, int move)
+    {
+        for (int candidate : moves)
+            if (candidate == move)
+                return true;
+        return false;
+    }
+
+    /**
+     * @param score proven search score, or the brute force solver's
+     * @return value of the position
+     */
+    private static int valueOf(int score)
+    {
+        return MiniMax.isWin(ILayout.ID.X, score) ? X_WINS : MiniMax.isWin(ILayout.ID.O, score) ? O_WINS : DRAW;
+    }
+
+    /**
+     * @param value value of a position
+     * @return readable name of the value
+     */
+    private static String valueName(int value)
+    {
+        switch (value)
+        {
+            case X_WINS:
+                return "X wins";
+            case O_WINS:
+                return "O wins";
+            case DRAW:
+                return "draw";
+            default:
+                return "unknown";
+        }
+    }
+
+    /**
+     * Runs the suite and exits with status 1 if any move, value or metric regressed
+     * @param args baseline file (default DEFAULT_BASELINE), and --record to overwrite it with the measured
+     * values instead of comparing against it
+     * @throws IOException if the baseline can't be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        File file = new File(DEFAULT_BASELINE);
+        boolean record = false;
+        for (String arg : args)
+            if (arg.equals("--record"))
+                record = true;
+            else
+                file = new File(arg);
+
+        Properties baseline = new Properties();
+        if (file.exists())
+            try (Reader reader = new FileReader(file))
+            {
+                baseline.load(reader);
+            }
+        else if (!record)
+            System.out.println("No baseline at " + file + ", only checking moves and values");
+
+        Benchmark benchmark = new Benchmark(baseline, record);
+        benchmark.run();
+        if (record)
+        {
+            // Sorted and without a timestamp, so that re-recording the baseline gives a readable diff.
+            try (PrintWriter writer = new PrintWriter(new FileWriter(file)))
+            {
+                writer.println("# MiniMax regression baseline, recorded with java Benchmark --record");
+                for (String key : new TreeSet<>(benchmark.measured.stringPropertyNames()))
+                    writer.println(key + "=" + benchmark.measured.getProperty(key));
+            }
+            System.out.println("Baseline written to " + file);
+        }
+
+        System.out.println(benchmark.failures == 0 ? "OK" : benchmark.failures + " failures");
+        System.exit(benchmark.failures == 0 ? 0 : 1);
+    }
+}
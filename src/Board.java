@@ -7,14 +7,87 @@ import java.util.*;
  */
 public class Board implements ILayout, Cloneable
 {
+    private static final int CELLS = ROWS * COLUMNS;
+    private static final int SYMMETRIES = ROWS == COLUMNS ? 8 : 4;
+    private static final long[][] SYMMETRY_POWERS = computeSymmetryPowers();
+    private static final PatternTable PATTERNS = new PatternTable(WIN_CONDITION_LENGTH);
+    private static final int[] EMPTY_WINDOW_CODES;
+    private static final int[][] CELL_WINDOWS;
+    private static final int[][] CELL_WINDOW_WEIGHTS;
+    private static final int[][] WINDOW_CELLS;
+
+    /*
+     * Lists every window of WIN_CONDITION_LENGTH cells in a row (in any direction) together with its flanks,
+     * and for each cell the windows it is part of and its weight in their pattern codes.
+     */
+    static
+    {
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+        ArrayList<Integer> emptyWindowCodes = new ArrayList<>();
+        ArrayList<int[]> windowCells = new ArrayList<>();
+        ArrayList<ArrayList<int[]>> cellWindows = new ArrayList<>();
+        for (int i = 0; i < CELLS; i++)
+            cellWindows.add(new ArrayList<>());
+
+        for (int[] direction : directions)
+            for (int y = 0; y < ROWS; y++)
+                for (int x = 0; x < COLUMNS; x++)
+                {
+                    int endX = x + (WIN_CONDITION_LENGTH - 1) * direction[0];
+                    int endY = y + (WIN_CONDITION_LENGTH - 1) * direction[1];
+                    if (endX < 0 || endX >= COLUMNS || endY >= ROWS)
+                        continue;
+
+                    int window = emptyWindowCodes.size();
+                    int code = 0;
+                    int[] cells = new int[WIN_CONDITION_LENGTH + 2];
+                    for (int digit = 0; digit < WIN_CONDITION_LENGTH + 2; digit++)
+                    {
+                        int cellX = x + (digit - 1) * direction[0];
+                        int cellY = y + (digit - 1) * direction[1];
+                        if (cellX >= 0 && cellX < COLUMNS && cellY >= 0 && cellY < ROWS)
+                        {
+                            cells[digit] = cellY * COLUMNS + cellX;
+                            cellWindows.get(cells[digit]).add(new int[] {window, PATTERNS.weight(digit)});
+                        }
+                        else
+                        {
+                            cells[digit] = -1;
+                            code += PATTERNS.weight(digit);
+                        }
+                    }
+                    emptyWindowCodes.add(code);
+                    windowCells.add(cells);
+                }
+
+        EMPTY_WINDOW_CODES = emptyWindowCodes.stream().mapToInt(Integer::intValue).toArray();
+        WINDOW_CELLS = windowCells.toArray(new int[0][]);
+        CELL_WINDOWS = new int[CELLS][];
+        CELL_WINDOW_WEIGHTS = new int[CELLS][];
+        for (int i = 0; i < CELLS; i++)
+        {
+            CELL_WINDOWS[i] = cellWindows.get(i).stream().mapToInt(entry -> entry[0]).toArray();
+            CELL_WINDOW_WEIGHTS[i] = cellWindows.get(i).stream().mapToInt(entry -> entry[1]).toArray();
+        }
+    }
+
     private ID[][] board;
-    private int hash;
+    private long[] hashes;
     private ID playersTurn;
     private ID winner;
-    private HashSet<Integer> availableMoves;
-    private HashSet<Integer> unavailableMoves;
+    private int[] availableMoves;
+    private int[] availableMovePositions;
+    private int availableMoveCount;
+    private int[] playedMoves;
     private int moveCount;
     private boolean isGameOver;
+    private int[] windowCodes;
+    private int evaluationXToMove;
+    private int evaluationOToMove;
+    private int[][] threats;
+    private int[] threatCounts;
+    private int[][] windowStones;
+    private int[] winnableWindows;
 
     /**
      * Creates a brand-new board
@@ -22,11 +95,53 @@ public class Board implements ILayout, Cloneable
     public Board()
     {
         this.board = new ID[ROWS][COLUMNS];
-        this.availableMoves = new HashSet<>();
-        this.unavailableMoves = new HashSet<>();
+        this.hashes = new long[SYMMETRIES];
+        this.availableMoves = new int[CELLS];
+        this.availableMovePositions = new int[CELLS];
+        this.playedMoves = new int[CELLS];
+        this.windowCodes = new int[EMPTY_WINDOW_CODES.length];
+        this.threats = new int[ID.values().length][CELLS];
+        this.threatCounts = new int[ID.values().length];
+        this.windowStones = new int[ID.values().length][EMPTY_WINDOW_CODES.length];
+        this.winnableWindows = new int[ID.values().length];
         this.reset();
     }
 
+    /**
+     * Computes, for every symmetry of the board, the base 3 weight each cell has once mapped by that symmetry.
+     * Hashing a position with these weights gives the hash its transformed position would have.
+     * @return weights indexed by symmetry and then by cell
+     */
+    private static long[][] computeSymmetryPowers()
+    {
+        long[] powers = new long[CELLS];
+        long power = 1;
+        for (int i = 0; i < CELLS; i++)
+        {
+            powers[i] = power;
+            power *= 3;
+        }
+
+        long[][] symmetryPowers = new long[SYMMETRIES][CELLS];
+        for (int y = 0; y < ROWS; y++)
+            for (int x = 0; x < COLUMNS; x++)
+            {
+                int index = y * COLUMNS + x;
+                symmetryPowers[0][index] = powers[index];
+                symmetryPowers[1][index] = powers[y * COLUMNS + COLUMNS - x - 1];
+                symmetryPowers[2][index] = powers[(ROWS - y - 1) * COLUMNS + x];
+                symmetryPowers[3][index] = powers[(ROWS - y - 1) * COLUMNS + COLUMNS - x - 1];
+                if (SYMMETRIES == 8)
+                {
+                    symmetryPowers[4][index] = powers[x * COLUMNS + y];
+                    symmetryPowers[5][index] = powers[(ROWS - x - 1) * COLUMNS + COLUMNS - y - 1];
+                    symmetryPowers[6][index] = powers[x * COLUMNS + COLUMNS - y - 1];
+                    symmetryPowers[7][index] = powers[(ROWS - x - 1) * COLUMNS + y];
+                }
+            }
+        return symmetryPowers;
+    }
+
     /**
      * Set the cells to be blank and load the available moves (all the moves are
      * available at the start of the game).
@@ -37,9 +152,28 @@ public class Board implements ILayout, Cloneable
             for (int col = 0; col < COLUMNS; col++)
                 this.board[row][col] = ID.Blank;
 
-        this.availableMoves.clear();
-        for (int i = 0; i < ROWS * COLUMNS; i++)
-            this.availableMoves.add(i);
+        for (int i = 0; i < CELLS; i++)
+        {
+            this.availableMoves[i] = i;
+            this.availableMovePositions[i] = i;
+        }
+        this.availableMoveCount = CELLS;
+
+        System.arraycopy(EMPTY_WINDOW_CODES, 0, this.windowCodes, 0, EMPTY_WINDOW_CODES.length);
+        this.evaluationXToMove = 0;
+        this.evaluationOToMove = 0;
+        for (int[] threats : this.threats)
+            Arrays.fill(threats, 0);
+        Arrays.fill(this.threatCounts, 0);
+        for (int[] windowStones : this.windowStones)
+            Arrays.fill(windowStones, 0);
+        this.winnableWindows[ID.X.ordinal()] = EMPTY_WINDOW_CODES.length;
+        this.winnableWindows[ID.O.ordinal()] = EMPTY_WINDOW_CODES.length;
+        for (int code : this.windowCodes)
+        {
+            this.evaluationXToMove += PATTERNS.getScoreXToMove(code);
+            this.evaluationOToMove += PATTERNS.getScoreOToMove(code);
+        }
     }
 
     /**
@@ -47,7 +181,7 @@ public class Board implements ILayout, Cloneable
      */
     private void reset()
     {
-        this.hash = 0;
+        Arrays.fill(this.hashes, 0);
         this.moveCount = 0;
         this.isGameOver = false;
         this.playersTurn = ID.X;
@@ -66,14 +200,112 @@ public class Board implements ILayout, Cloneable
         boolean move = this.move(index % COLUMNS, index / COLUMNS);
         if (move)
         {
-            this.availableMoves.remove(index);
-            this.unavailableMoves.add(index);
-            this.hash += this.playersTurn.ordinal() * (int) Math.pow(3, index);
+            // Swap the move with the last available one, so that undoing in reverse order brings back the same set of
+            // available moves (though not necessarily in the same order).
+            int position = this.availableMovePositions[index];
+            int last = this.availableMoves[--this.availableMoveCount];
+            this.availableMoves[position] = last;
+            this.availableMovePositions[last] = position;
+            this.availableMoves[this.availableMoveCount] = index;
+            this.availableMovePositions[index] = this.availableMoveCount;
+
+            this.playedMoves[this.moveCount - 1] = index;
+            int stone = this.board[index / COLUMNS][index % COLUMNS].ordinal();
+            for (int s = 0; s < SYMMETRIES; s++)
+                this.hashes[s] += stone * SYMMETRY_POWERS[s][index];
+            this.updateWindows(index, stone);
+
+            // Neither player can complete a window any more, so the game can only end in a draw.
+            if (this.winnableWindows[ID.X.ordinal()] == 0 && this.winnableWindows[ID.O.ordinal()] == 0)
+                this.isGameOver = true;
         }
 
         return move;
     }
 
+    /**
+     * Takes back the last move played.
+     */
+    @Override
+    public void undoMove()
+    {
+        if (this.moveCount == 0)
+            throw new IllegalStateException("No moves to undo.");
+
+        int index = this.playedMoves[--this.moveCount];
+        int x = index % COLUMNS;
+        int y = index / COLUMNS;
+        ID stone = this.board[y][x];
+        for (int s = 0; s < SYMMETRIES; s++)
+            this.hashes[s] -= stone.ordinal() * SYMMETRY_POWERS[s][index];
+        this.updateWindows(index, -stone.ordinal());
+
+        this.board[y][x] = ID.Blank;
+        this.availableMoveCount++;
+        this.playersTurn = stone;
+        this.winner = ID.Blank;
+        this.isGameOver = false;
+    }
+
+    /**
+     * Updates the pattern codes of the windows a cell is part of, along with the evaluation
+     * @param index position of the cell
+     * @param delta stone placed on the cell (X or O ordinal), or its negative if it was removed
+     */
+    private void updateWindows(int index, int delta)
+    {
+        int[] windows = CELL_WINDOWS[index];
+        int[] weights = CELL_WINDOW_WEIGHTS[index];
+        for (int i = 0; i < windows.length; i++)
+        {
+            int code = this.windowCodes[windows[i]];
+            this.evaluationXToMove -= PATTERNS.getScoreXToMove(code);
+            this.evaluationOToMove -= PATTERNS.getScoreOToMove(code);
+            this.updateThreat(windows[i], code, -1);
+            code += delta * weights[i];
+            this.windowCodes[windows[i]] = code;
+            this.evaluationXToMove += PATTERNS.getScoreXToMove(code);
+            this.evaluationOToMove += PATTERNS.getScoreOToMove(code);
+            this.updateThreat(windows[i], code, 1);
+            if (WINDOW_CELLS[windows[i]][0] != index && WINDOW_CELLS[windows[i]][WIN_CONDITION_LENGTH + 1] != index)
+                this.updateWinnable(windows[i], delta);
+        }
+    }
+
+    /**
+     * Counts the stones of each player in a window, and with them the windows each player can still complete
+     * @param window window index
+     * @param delta stone placed on one of the window's cells (X or O ordinal), or its negative if it was removed
+     */
+    private void updateWinnable(int window, int delta)
+    {
+        int stone = Math.abs(delta);
+        int opponent = stone == ID.X.ordinal() ? ID.O.ordinal() : ID.X.ordinal();
+        int stones = this.windowStones[stone][window] += Integer.signum(delta);
+        // The first stone of a player in a window takes it away from the opponent, removing the last one gives it back.
+        if (delta > 0 && stones == 1)
+            this.winnableWindows[opponent]--;
+        else if (delta < 0 && stones == 0)
+            this.winnableWindows[opponent]++;
+    }
+
+    /**
+     * Counts (or stops counting) a window as a threat on its blank cell, if it is one stone short of a win
+     * @param window window index
+     * @param code pattern code of the window
+     * @param delta 1 to count the window, -1 to stop counting it
+     */
+    private void updateThreat(int window, int code, int delta)
+    {
+        int threat = PATTERNS.getThreat(code);
+        if (threat == 0)
+            return;
+
+        int owner = PATTERNS.getThreatOwner(code);
+        this.threats[owner][WINDOW_CELLS[window][threat]] += delta;
+        this.threatCounts[owner] += delta;
+    }
+
     /**
      * Places an X or an O on the specified location depending on who turn it is.
      * @param x the x coordinate of the location
@@ -90,6 +322,7 @@ public class Board implements ILayout, Cloneable
         else
            return false;
         this.moveCount++;
+        boolean isWinningMove = this.threats[this.playersTurn.ordinal()][y * COLUMNS + x] > 0;
 
         // The game is a draw.
         if (this.moveCount == ROWS * COLUMNS)
@@ -98,8 +331,8 @@ public class Board implements ILayout, Cloneable
            this.isGameOver = true;
         }
 
-        // Check for a winner.
-        if (this.checkWinCondition(x, y))
+        // Check for a winner, which happens when a window one stone short of a win is completed.
+        if (isWinningMove)
         {
             this.winner = this.playersTurn;
             this.isGameOver = true;
@@ -110,145 +343,115 @@ public class Board implements ILayout, Cloneable
     }
 
     /**
-     * Checks if game has finished by victory for one of the players
-     * @param x the x coordinate of the location
-     * @param y the y coordinate of the location
-     * @return true if game ends in a win, false otherwise
+     * Check to see if the game is over (if there is a winner or a draw).
+     * @return true if the game is over
      */
-    private boolean checkWinCondition(int x, int y)
+    @Override
+    public boolean isGameOver()
     {
-        return this.checkHorizontalWin(y) || this.checkVerticalWin(x) || this.checkLeftRightDiagonalWin(x, y) || this.checkRightLeftDiagonalWin(x, y);
+        return this.isGameOver;
     }
 
     /**
-     * Checks if the game has finished by victory on the horizontal line for one of the players
-     * @param y the y coordinate of the location
-     * @return true if game ends in a win, false otherwise
+     * Check to see who's turn it is.
+     * @return the player whose turn it is
      */
-    private boolean checkHorizontalWin(int y)
+    @Override
+    public ID getTurn()
     {
-        int counter = 0;
-        for (int x = 0; x < COLUMNS; x++)
-        {
-            if (this.board[y][x] == this.playersTurn)
-                counter++;
-            else
-                counter = 0;
-
-            if (counter == WIN_CONDITION_LENGTH)
-                return true;
-        }
-        return false;
+        return this.playersTurn;
     }
 
     /**
-     * Checks if the game has finished by victory on the vertical line for one of the players
-     * @param x the x coordinate of the location
-     * @return true if game ends in a win, false otherwise
+     * @return the player who won (or Blank if the game is a draw)
      */
-    private boolean checkVerticalWin(int x)
+    @Override
+    public ID getWinner()
     {
-        int counter = 0;
-        for (int y = 0; y < ROWS; y++)
-        {
-            if (this.board[y][x] == this.playersTurn)
-                counter++;
-            else
-                counter = 0;
-
-            if (counter == WIN_CONDITION_LENGTH)
-                return true;
-        }
-        return false;
+        if (!this.isGameOver)
+            throw new IllegalStateException("Not over yet!");
+        return this.winner;
     }
 
     /**
-     * Checks if game the has finished by victory on the left-right diagonal for one of the players
-     * @param x the x coordinate of the location
-     * @param y the y coordinate of the location
-     * @return true if game ends in a win, false otherwise
+     * @param player X or O
+     * @return true if some window holds none of the opponent's stones, so the player may still win
      */
-    private boolean checkLeftRightDiagonalWin(int x, int y)
+    @Override
+    public boolean canWin(ID player)
     {
-        int counter = 0;
-        int yIndex = Math.max(y - x, 0);
-        int xIndex = Math.max(x - y, 0);
-        for (int i = 0; yIndex + i < ROWS && xIndex + i < COLUMNS; i++)
-        {
-            if (this.board[yIndex + i][xIndex + i] == this.playersTurn)
-                counter++;
-            else
-                counter = 0;
-
-            if (counter == WIN_CONDITION_LENGTH)
-                return true;
-        }
-        return false;
+        return this.winnableWindows[player.ordinal()] > 0;
     }
 
     /**
-     * Checks if game the has finished by victory on the right-left diagonal for one of the players
-     * @param x the x coordinate of the location
-     * @param y the y coordinate of the location
-     * @return true if game ends in a win, false otherwise
+     * @return the number of empty cells
      */
-    private boolean checkRightLeftDiagonalWin(int x, int y)
+    @Override
+    public int getAvailableMoveCount()
     {
-        int counter = 0;
-        int yIndex = Math.max(y - COLUMNS + 1 + x, 0);
-        int xIndex = Math.min(x + y, COLUMNS - 1);
-        for (int i = 0; yIndex + i < ROWS && xIndex - i >= 0; i++)
-        {
-            if (this.board[yIndex + i][xIndex - i] == this.playersTurn)
-                counter++;
-            else
-                counter = 0;
-
-            if (counter == WIN_CONDITION_LENGTH)
-                return true;
-        }
-        return false;
+        return this.availableMoveCount;
     }
 
     /**
-     * Check to see if the game is over (if there is a winner or a draw).
-     * @return true if the game is over
+     * Copies the indexes of all the positions on the board that are empty into the given buffer.
+     * @param moves buffer to fill
+     * @return the number of empty cells
      */
     @Override
-    public boolean isGameOver()
+    public int getAvailableMoves(int[] moves)
     {
-        return this.isGameOver;
+        System.arraycopy(this.availableMoves, 0, moves, 0, this.availableMoveCount);
+        return this.availableMoveCount;
     }
 
     /**
-     * Check to see who's turn it is.
-     * @return the player whose turn it is
+     * Lists the moves the player at turn is forced to play, found from the threats kept up to date on every move.
+     * @param moves buffer to fill
+     * @return the number of forced moves, 0 if no move is forced
      */
     @Override
-    public ID getTurn()
+    public int getForcedMoves(int[] moves)
     {
-        return this.playersTurn;
+        if (this.isGameOver)
+            return 0;
+
+        int player = this.playersTurn.ordinal();
+        int opponent = this.playersTurn == ID.X ? ID.O.ordinal() : ID.X.ordinal();
+        if (this.threatCounts[player] > 0)
+            for (int i = 0; i < this.availableMoveCount; i++)
+                if (this.threats[player][this.availableMoves[i]] > 0)
+                {
+                    moves[0] = this.availableMoves[i];
+                    return 1;
+                }
+
+        int count = 0;
+        if (this.threatCounts[opponent] > 0)
+            for (int i = 0; i < this.availableMoveCount; i++)
+                if (this.threats[opponent][this.availableMoves[i]] > 0)
+                    moves[count++] = this.availableMoves[i];
+        return count;
     }
 
     /**
-     * @return the player who won (or Blank if the game is a draw)
+     * @return base 3 encoding of the board (exact for boards up to 40 cells)
      */
     @Override
-    public ID getWinner()
+    public long getHash()
     {
-        if (!this.isGameOver)
-            throw new IllegalStateException("Not over yet!");
-        return this.winner;
+        return this.hashes[0];
     }
 
     /**
-     * Get the indexes of all the positions on the board that are empty.
-     * @return          the empty cells
+     * @return the smallest base 3 encoding among all the symmetries of the board
      */
     @Override
-    public HashSet<Integer> getAvailableMoves()
+    public long getCanonicalHash()
     {
-        return this.availableMoves;
+        long canonicalHash = this.hashes[0];
+        for (int s = 1; s < SYMMETRIES; s++)
+            canonicalHash = Math.min(canonicalHash, this.hashes[s]);
+        return canonicalHash;
     }
 
     /**
@@ -263,13 +466,22 @@ public class Board implements ILayout, Cloneable
 	        b.board = new ID[ROWS][COLUMNS];
 	        for (int i = 0; i < ROWS; i++)
                 System.arraycopy(this.board[i], 0, b.board[i], 0, COLUMNS);
-            b.hash = this.hash;
+            b.hashes = this.hashes.clone();
 	        b.playersTurn = this.playersTurn;
 	        b.winner = this.winner;
-	        b.availableMoves = new HashSet<>();
-	        b.availableMoves.addAll(this.availableMoves);
-            b.unavailableMoves = new HashSet<>();
-            b.unavailableMoves.addAll(this.unavailableMoves);
+            b.availableMoves = this.availableMoves.clone();
+            b.availableMovePositions = this.availableMovePositions.clone();
+            b.availableMoveCount = this.availableMoveCount;
+            b.playedMoves = this.playedMoves.clone();
+            b.windowCodes = this.windowCodes.clone();
+            b.threats = new int[this.threats.length][];
+            for (int i = 0; i < this.threats.length; i++)
+                b.threats[i] = this.threats[i].clone();
+            b.threatCounts = this.threatCounts.clone();
+            b.windowStones = new int[this.windowStones.length][];
+            for (int i = 0; i < this.windowStones.length; i++)
+                b.windowStones[i] = this.windowStones[i].clone();
+            b.winnableWindows = this.winnableWindows.clone();
 	        b.moveCount = this.moveCount;
 	        b.isGameOver = this.isGameOver;
 	        return b;
@@ -311,85 +523,6 @@ public class Board implements ILayout, Cloneable
         return new String(sb);
     }
         
-    /**
-    * @return the children of the receiver and their respective actions.
-    */
-    @Override
-    public HashMap<ILayout, Integer> getChildrenActions()
-    {
-        HashMap<ILayout, Integer> children = new HashMap<>();
-        if (this.isGameOver())
-            return children;
-
-        for (Integer i : this.availableMoves)
-        {
-            Board child = (Board) this.clone();
-            child.move(i);
-            children.put(child, i);
-        }
-        return children;
-    }
-
-    /**
-     * @return the children of the receiver.
-     */
-    @Override
-    public ArrayList<ILayout> getChildren()
-    {
-        ArrayList<ILayout> children = new ArrayList<>(this.availableMoves.size());
-        if (this.isGameOver())
-            return children;
-
-        int checkSymmetryMoveLimit = Math.max(ROWS, COLUMNS);
-        for (Integer i : this.availableMoves)
-        {
-            Board child = (Board) this.clone();
-            child.move(i);
-            if (this.moveCount >= checkSymmetryMoveLimit || children.stream().noneMatch((board) -> child.hasSymmetry((Board) board)))
-                children.add(child);
-        }
-        return children;
-    }
-
-    /**
-     * Checks for symmetry relations
-     * @param that Board
-     * @return true if board has a symmetry relation with other, false otherwise
-     */
-    //Not a huge fan of this code right here ;(
-    private boolean hasSymmetry(Board that)
-    {
-        boolean horizontalSymmetry = true;
-        boolean verticalSymmetry = true;
-        boolean halfRotation = true;
-        boolean leftRightDiagonalSymmetry = ROWS == COLUMNS;
-        boolean rightLeftDiagonalSymmetry = ROWS == COLUMNS;
-        boolean clockwiseRotation = ROWS == COLUMNS;
-        boolean counterClockwiseRotation = ROWS == COLUMNS;
-
-        for (int y = 0; y < ROWS; y++)
-            for (int x = 0; x < COLUMNS; x++)
-            {
-                if (horizontalSymmetry && this.board[y][x] != that.board[y][COLUMNS - x - 1])
-                    horizontalSymmetry = false;
-                if (verticalSymmetry && this.board[y][x] != that.board[ROWS - y - 1][x])
-                    verticalSymmetry = false;
-                if (halfRotation && this.board[y][x] != that.board[ROWS - y - 1][COLUMNS - x - 1])
-                    halfRotation = false;
-                if (leftRightDiagonalSymmetry && this.board[y][x] != that.board[x][y])
-                    leftRightDiagonalSymmetry = false;
-                if (rightLeftDiagonalSymmetry && this.board[y][x] != that.board[ROWS - x - 1][COLUMNS - y - 1])
-                    rightLeftDiagonalSymmetry = false;
-                if (clockwiseRotation && this.board[y][x] != that.board[x][COLUMNS - y - 1])
-                    clockwiseRotation = false;
-                if (counterClockwiseRotation && this.board[y][x] != that.board[ROWS - x - 1][y])
-                    counterClockwiseRotation = false;
-            }
-
-        return horizontalSymmetry || verticalSymmetry || halfRotation || leftRightDiagonalSymmetry ||
-                rightLeftDiagonalSymmetry || clockwiseRotation || counterClockwiseRotation;
-    }
-
     @Override
 	public boolean equals(Object other)
     {
@@ -399,7 +532,7 @@ public class Board implements ILayout, Cloneable
             return false;
 
 		Board that = (Board) other;
-        if (this.hash != that.hash)
+        if (this.hashes[0] != that.hashes[0])
             return false;
         for (int y = 0; y < ROWS; y++)
             for (int x = 0; x < COLUMNS; x++)
@@ -411,7 +544,7 @@ public class Board implements ILayout, Cloneable
 	@Override
 	public int hashCode()
     {
-        return this.hash;
+        return Long.hashCode(this.hashes[0]);
 	}
 
     /**
@@ -426,11 +559,24 @@ public class Board implements ILayout, Cloneable
         return (this.board[y][x] == ID.Blank);
 	}
 
-    private static final int WIN_POTENTIAL_ADJACENCY_MULTIPLIER = 10;
+    /**
+     * @param player X or O
+     * @return bit mask of the cells holding the player's stones, bit i standing for index i (boards up to 64 cells)
+     */
+    long getStones(ID player)
+    {
+        long stones = 0;
+        for (int i = 0; i < CELLS; i++)
+            if (this.board[i / COLUMNS][i % COLUMNS] == player)
+                stones |= 1L << i;
+        return stones;
+    }
 
     // TODO: 29/11/23 Improve heuristic evaluation for competition
 
     /**
+     * Sums the pattern table score of every window, as seen by the player at turn.
+     * The sums are kept up to date on every move, so this is a lookup.
      * @return the layout's evaluation.
      */
     @Override
@@ -438,10 +584,9 @@ public class Board implements ILayout, Cloneable
     {
         if (this.isGameOver)
             return this.getUtility();
-        if (this.unavailableMoves.isEmpty())
-            return 0;
 
-        return this.improveEvaluationAccuracy(this.getSuperficialEvaluation());
+        int evaluation = this.playersTurn == ID.X ? this.evaluationXToMove : this.evaluationOToMove;
+        return Math.max(MIN_EVALUATION + MAX_WIN_DISTANCE + 1, Math.min(MAX_EVALUATION - MAX_WIN_DISTANCE - 1, evaluation));
     }
 
     /**
@@ -456,181 +601,4 @@ public class Board implements ILayout, Cloneable
         else
             return MIN_EVALUATION;
     }
-
-    /**
-     * @return a superficial evaluation of the board
-     */
-    private int getSuperficialEvaluation()
-    {
-        int evaluation = 0;
-        for (Integer i : this.unavailableMoves)
-        {
-            int x = i % COLUMNS;
-            int y = i / COLUMNS;
-            ID player = this.board[y][x];
-            ID oppositePlayer = player == ID.X ? ID.O : ID.X;
-            evaluation += this.checkHorizontalWinPotential(x, y, player, oppositePlayer);
-            evaluation += this.checkVerticalWinPotential(x, y, player, oppositePlayer);
-            evaluation += this.checkLeftRightDiagonalWinPotential(x, y, player, oppositePlayer);
-            evaluation += this.checkRightLeftDiagonalWinPotential(x, y, player, oppositePlayer);
-        }
-        return evaluation;
-    }
-
-    /**
-     * Improves accuracy of a given evaluation value by taking into account whose turn is
-     * @param evaluation Evaluation value
-     * @return an improved evaluation value for the given board
-     */
-    private int improveEvaluationAccuracy(int evaluation)
-    {
-        int magnitude = 0;
-        while (Math.pow(WIN_POTENTIAL_ADJACENCY_MULTIPLIER, magnitude + 1) <= Math.abs(evaluation))
-            magnitude++;
-
-        int power = (int) Math.pow(WIN_POTENTIAL_ADJACENCY_MULTIPLIER, magnitude);
-        int higherPower = (int) Math.pow(WIN_POTENTIAL_ADJACENCY_MULTIPLIER, magnitude + 1);
-
-        if (evaluation > 0)
-            evaluation = this.playersTurn == ID.X ? evaluation - power + higherPower : evaluation - power;
-        else if (evaluation < 0)
-            evaluation = this.playersTurn == ID.O ? evaluation + power - higherPower : evaluation + power;
-        return evaluation;
-    }
-
-    /**
-     * Calculates the win potential in a given horizontal line
-     * @param x x coordinate
-     * @param y y coordinate
-     * @param player whose turn is to play
-     * @param oppositePlayer whose turn isn't to play
-     * @return the horizontal win potential for the given horizontal line
-     */
-    private int checkHorizontalWinPotential(int x, int y, ID player, ID oppositePlayer)
-    {
-        if (player == ID.Blank)
-            throw new IllegalArgumentException("Can't check win potential for BLANK position");
-        if (this.board[y][x] != player)
-            throw new IllegalArgumentException("Position doesn't match with given player");
-
-        int counter = 1;
-        int winPotential = 1;
-        for (int i = x - 1; i >= 0 && this.board[y][i] != oppositePlayer; i--)
-        {
-            if (this.board[y][i] == player)
-                return 0; //goofy
-            counter++;
-        }
-        for (int i = x + 1; i < COLUMNS && this.board[y][i] != oppositePlayer; i++)
-        {
-            if (this.board[y][i] == player)
-                winPotential *= WIN_POTENTIAL_ADJACENCY_MULTIPLIER;
-            counter++;
-        }
-
-        winPotential = player == ID.X ? winPotential : - winPotential;
-        return counter >= WIN_CONDITION_LENGTH ? winPotential : 0;
-    }
-
-    /**
-     * Calculates the win potential in a given vertical line
-     * @param x x coordinate
-     * @param y y coordinate
-     * @param player whose turn is to play
-     * @param oppositePlayer whose turn isn't to play
-     * @return the horizontal win potential for the given vertical line
-     */
-    private int checkVerticalWinPotential(int x, int y, ID player, ID oppositePlayer)
-    {
-        if (player == ID.Blank)
-            throw new IllegalArgumentException("Can't check win potential for BLANK position");
-        if (this.board[y][x] != player)
-            throw new IllegalArgumentException("Position doesn't match with given player");
-
-        int counter = 1;
-        int winPotential = 1;
-        for (int i = y - 1; i >= 0 && this.board[i][x] != oppositePlayer; i--)
-        {
-            if (this.board[i][x] == player)
-                return 0; //goofy
-            counter++;
-        }
-        for (int i = y + 1; i < ROWS && this.board[i][x] != oppositePlayer; i++)
-        {
-            if (this.board[i][x] == player)
-                winPotential *= WIN_POTENTIAL_ADJACENCY_MULTIPLIER;
-            counter++;
-        }
-
-        winPotential = player == ID.X ? winPotential : - winPotential;
-        return counter >= WIN_CONDITION_LENGTH ? winPotential : 0;
-    }
-
-    /**
-     * Calculates the win potential in a given left-right diagonal line
-     * @param x x coordinate
-     * @param y y coordinate
-     * @param player whose turn is to play
-     * @param oppositePlayer whose turn isn't to play
-     * @return the horizontal win potential for the given horizontal line
-     */
-    private int checkLeftRightDiagonalWinPotential(int x, int y, ID player, ID oppositePlayer)
-    {
-        if (player == ID.Blank)
-            throw new IllegalArgumentException("Can't check win potential for BLANK position");
-        if (this.board[y][x] != player)
-            throw new IllegalArgumentException("Position doesn't match with given player");
-
-        int counter = 1;
-        int winPotential = 1;
-        for (int i = 1; x - i >= 0 && y - i >= 0 && this.board[y - i][x - i] != oppositePlayer; i++)
-        {
-            if (this.board[y - i][x - i] == player)
-                return 0; //goofy
-            counter++;
-        }
-        for (int i = 1; x + i < COLUMNS && y + i < ROWS && this.board[y + i][x + i] != oppositePlayer; i++)
-        {
-            if (this.board[y + i][x + i] == player)
-                winPotential *= WIN_POTENTIAL_ADJACENCY_MULTIPLIER;
-            counter++;
-        }
-
-        winPotential = player == ID.X ? winPotential : - winPotential;
-        return counter >= WIN_CONDITION_LENGTH ? winPotential : 0;
-    }
-
-    /**
-     * Calculates the win potential in a given right-left diagonal line
-     * @param x x coordinate
-     * @param y y coordinate
-     * @param player whose turn is to play
-     * @param oppositePlayer whose turn isn't to play
-     * @return the horizontal win potential for the given right-left line
-     */
-    private int checkRightLeftDiagonalWinPotential(int x, int y, ID player, ID oppositePlayer)
-    {
-        if (player == ID.Blank)
-            throw new IllegalArgumentException("Can't check win potential for BLANK position");
-        if (this.board[y][x] != player)
-            throw new IllegalArgumentException("Position doesn't match with given player");
-
-        int counter = 1;
-        int winPotential = 1;
-        for (int i = 1; x + i < COLUMNS && y - i >= 0 && this.board[y - i][x + i] != oppositePlayer; i++)
-        {
-            if (this.board[y - i][x + i] == player)
-                return 0; //goofy
-            counter++;
-        }
-        for (int i = 1; x - i >= 0 && y + i < ROWS && this.board[y + i][x - i] != oppositePlayer; i++)
-        {
-            if (this.board[y + i][x - i] == player)
-                winPotential *= WIN_POTENTIAL_ADJACENCY_MULTIPLIER;
-            counter++;
-        }
-
-        winPotential = player == ID.X ? winPotential : - winPotential;
-        return counter >= WIN_CONDITION_LENGTH ? winPotential : 0;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing map from cell indexes to counters, where a missing cell counts as 0 and a cell whose
+ * counter drops to 0 is removed. Backed by primitive arrays so it never boxes.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+class CellMap
+{
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates an empty map
+     * @param expectedSize number of cells the map should hold without growing
+     */
+    CellMap(int expectedSize)
+    {
+        int capacity = 16;
+        while (capacity < expectedSize * 2)
+            capacity <<= 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    /**
+     * @param cell cell index
+     * @return the cell's counter, 0 if the cell isn't in the map
+     */
+    int get(int cell)
+    {
+        for (int slot = this.slot(cell); ; slot = (slot + 1) & this.mask)
+        {
+            if (this.keys[slot] == cell)
+                return this.values[slot];
+            if (this.keys[slot] == EMPTY)
+                return 0;
+        }
+    }
+
+    /**
+     * Adds to a cell's counter, removing the cell from the map if the counter drops to 0
+     * @param cell cell index
+     * @param delta amount to add
+     * @return the cell's new counter
+     */
+    int add(int cell, int delta)
+    {
+        int slot = this.slot(cell);
+        for (; this.keys[slot] != EMPTY; slot = (slot + 1) & this.mask)
+            if (this.keys[slot] == cell)
+            {
+                int value = this.values[slot] + delta;
+                if (value == 0)
+                    this.remove(slot);
+                else
+                    this.values[slot] = value;
+                return value;
+            }
+
+        if (delta == 0)
+            return 0;
+        this.keys[slot] = cell;
+        this.values[slot] = delta;
+        if (++this.size * 2 > this.keys.length)
+            this.grow();
+        return delta;
+    }
+
+    /**
+     * Removes the cell on a slot, shifting back the cells that probed past it
+     * @param slot slot to empty
+     */
+    private void remove(int slot)
+    {
+        int hole = slot;
+        for (int next = (hole + 1) & this.mask; this.keys[next] != EMPTY; next = (next + 1) & this.mask)
+        {
+            int home = this.slot(this.keys[next]);
+            if (((next - home) & this.mask) >= ((next - hole) & this.mask))
+            {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+        }
+        this.keys[hole] = EMPTY;
+        this.size--;
+    }
+
+    /**
+     * Doubles the capacity of the map
+     */
+    private void grow()
+    {
+        int[] keys = this.keys;
+        int[] values = this.values;
+        this.keys = new int[keys.length * 2];
+        this.values = new int[keys.length * 2];
+        this.mask = this.keys.length - 1;
+        this.size = 0;
+        Arrays.fill(this.keys, EMPTY);
+        for (int slot = 0; slot < keys.length; slot++)
+            if (keys[slot] != EMPTY)
+                this.add(keys[slot], values[slot]);
+    }
+
+    /**
+     * @return number of cells in the map
+     */
+    int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return number of slots, for iterating with getCell and getValue
+     */
+    int capacity()
+    {
+        return this.keys.length;
+    }
+
+    /**
+     * @param slot slot index
+     * @return the cell on the slot, or -1 if the slot is empty
+     */
+    int getCell(int slot)
+    {
+        return this.keys[slot];
+    }
+
+    /**
+     * @param slot slot index
+     * @return the counter of the cell on the slot
+     */
+    int getValue(int slot)
+    {
+        return this.values[slot];
+    }
+
+    /**
+     * @return a deep copy of the map
+     */
+    CellMap copy()
+    {
+        CellMap copy = new CellMap(0);
+        copy.keys = this.keys.clone();
+        copy.values = this.values.clone();
+        copy.size = this.size;
+        copy.mask = this.mask;
+        return copy;
+    }
+
+    /**
+     * @param cell cell index
+     * @return home slot of the cell
+     */
+    private int slot(int cell)
+    {
+        return (cell * 0x9E3779B9 >>> 16 ^ cell) & this.mask;
+    }
+}
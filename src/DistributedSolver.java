@@ -0,0 +1,720 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Exhaustive solver for the configured board that survives crashes and spreads over several processes (and,
+ * through a shared directory, several machines). The tree is split at a given ply into the positions that are
+ * distinct up to symmetry, each of which becomes a task file in a work directory:
+ * <ul>
+ * <li>pending/ holds the tasks nobody works on; a worker claims one by renaming it into claimed/</li>
+ * <li>claimed/ holds the tasks being worked on, each with a lease file naming its owner and a heartbeat count
+ * the owner keeps raising. A worker that sees a lease unchanged for LEASE_MILLIS, timed on its own clock so that
+ * clocks of different machines are never compared, puts the task back into pending/ for another worker to take over</li>
+ * <li>checkpoints/ holds the value of every child of a task solved so far, so that a task taken over is
+ * resumed rather than started again</li>
+ * <li>done/ holds the value of every task solved</li>
+ * </ul>
+ * Once every task is done, the combine step minimaxes the values found back up to the empty board.
+ * Values use the Tablebase constants (X_WINS, DRAW, O_WINS).
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class DistributedSolver
+{
+    /**
+     * Progress of a worker, reported as it happens. Both methods do nothing by default.
+     */
+    public interface Listener
+    {
+        /**
+         * Called once this worker has recorded the value of a task
+         * @param task task name
+         * @param value X_WINS, DRAW or O_WINS
+         */
+        default void solved(String task, int value)
+        {
+        }
+
+        /**
+         * Called once this worker has put a task whose lease expired back into pending/
+         * @param task task name
+         */
+        default void released(String task)
+        {
+        }
+    }
+
+    private static final long LEASE_MILLIS = 60000;
+    private static final long HEARTBEAT_MILLIS = LEASE_MILLIS / 4;
+    private static final long POLL_MILLIS = 1000;
+    private static final int MAX_CELLS = 40;
+    private static final String TASK = ".task";
+    private static final String RESULT = ".result";
+    private static final String CHECKPOINT = ".checkpoint";
+    private static final String LEASE = ".lease";
+
+    private final Path pending;
+    private final Path claimed;
+    private final Path done;
+    private final Path checkpoints;
+    private final Path split;
+    private final String owner;
+    private final Map<Path, String> observedLeases;
+    private final Map<Path, Long> observedSince;
+    private Listener listener;
+
+    /**
+     * Creates a solver working on the given directory
+     * @param directory work directory, shared by every worker
+     */
+    public DistributedSolver(File directory)
+    {
+        if (ILayout.ROWS * ILayout.COLUMNS > MAX_CELLS)
+            throw new IllegalStateException("Board too big to tell positions apart by their hash");
+
+        Path root = directory.toPath();
+        this.pending = root.resolve("pending");
+        this.claimed = root.resolve("claimed");
+        this.done = root.resolve("done");
+        this.checkpoints = root.resolve("checkpoints");
+        this.split = root.resolve("split");
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        this.observedLeases = new HashMap<>();
+        this.observedSince = new HashMap<>();
+    }
+
+    /**
+     * Reports the progress of work() from now on, which is otherwise silent
+     * @param listener the listener, or null to stop reporting
+     */
+    public void setListener(Listener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * @return true if the work directory was already split into tasks
+     */
+    public boolean isSplit()
+    {
+        return Files.exists(this.split);
+    }
+
+    /**
+     * Writes a task for every position at the given ply that is distinct up to symmetry
+     * @param ply number of moves from the empty board at which to split the tree
+     * @return number of tasks written
+     * @throws IOException if the tasks can't be written
+     */
+    public int split(int ply) throws IOException
+    {
+        if (ply < 1 || ply >= ILayout.ROWS * ILayout.COLUMNS)
+            throw new IllegalArgumentException("Invalid split ply");
+        if (this.isSplit())
+            throw new IllegalStateException("Work directory already split");
+
+        for (Path directory : new Path[] {this.pending, this.claimed, this.done, this.checkpoints})
+            Files.createDirectories(directory);
+        Map<Long, int[]> tasks = new HashMap<>();
+        this.split(new Board(), ply, new int[ply], 0, tasks);
+        for (Map.Entry<Long, int[]> task : tasks.entrySet())
+            write(this.pending.resolve(name(task.getKey()) + TASK), format(task.getValue()));
+
+        // Written last, so that a split that didn't finish can be told apart.
+        write(this.split, geometry() + " " + ply);
+        return tasks.size();
+    }
+
+    /**
+     * Collects the moves leading to each distinct (up to symmetry) unfinished position at the split ply
+     * @param board current position
+     * @param ply split ply
+     * @param moves moves played so far
+     * @param played number of moves played so far
+     * @param tasks moves leading to each position collected, by canonical hash
+     */
+    private void split(ILayout board, int ply, int[] moves, int played, Map<Long, int[]> tasks)
+    {
+        if (board.isGameOver())
+            return;
+        if (played == ply)
+        {
+            tasks.putIfAbsent(board.getCanonicalHash(), moves.clone());
+            return;
+        }
+
+        int[] children = new int[board.getAvailableMoveCount()];
+        int count = board.getAvailableMoves(children);
+        for (int i = 0; i < count; i++)
+        {
+            board.move(children[i]);
+            moves[played] = children[i];
+            this.split(board, ply, moves, played + 1, tasks);
+            board.undoMove();
+        }
+    }
+
+    /**
+     * Claims and solves tasks until there are none left, pending or claimed by other workers
+     * @return number of tasks this worker solved
+     * @throws IOException if the work directory can't be read or written
+     * @throws InterruptedException if interrupted while waiting for other workers
+     */
+    public int work() throws IOException, InterruptedException
+    {
+        this.checkSplit();
+        String worker = ManagementFactory.getRuntimeMXBean().getName();
+        MiniMax miniMax = new MiniMax();
+        int solved = 0;
+        while (true)
+        {
+            Path task = this.claim();
+            if (task != null)
+            {
+                this.solve(task, worker, miniMax);
+                solved++;
+                continue;
+            }
+
+            if (this.reclaimExpired() > 0)
+                continue;
+            if (list(this.claimed, TASK).isEmpty())
+                return solved;
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Claims a pending task by moving it into claimed/, which only one worker can do
+     * @return the claimed task, or null if no task is pending
+     * @throws IOException if the work directory can't be read
+     */
+    private Path claim() throws IOException
+    {
+        for (Path task : list(this.pending, TASK))
+        {
+            Path target = this.claimed.resolve(task.getFileName());
+            try
+            {
+                Files.move(task, target, StandardCopyOption.ATOMIC_MOVE);
+                this.writeLease(target, 0);
+                return target;
+            }
+            catch (NoSuchFileException | FileAlreadyExistsException e)
+            {
+                // Another worker claimed it first.
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts back into pending/ the claimed tasks whose lease this worker has seen unchanged for LEASE_MILLIS,
+     * as their workers seem to be gone
+     * @return number of tasks put back
+     * @throws IOException if the work directory can't be read
+     */
+    private int reclaimExpired() throws IOException
+    {
+        int reclaimed = 0;
+        long now = System.nanoTime();
+        List<Path> tasks = list(this.claimed, TASK);
+        this.observedLeases.keySet().retainAll(tasks);
+        this.observedSince.keySet().retainAll(tasks);
+        for (Path task : tasks)
+        {
+            String lease = readLease(task);
+            if (!lease.equals(this.observedLeases.get(task)))
+            {
+                this.observedLeases.put(task, lease);
+                this.observedSince.put(task, now);
+                continue;
+            }
+            if ((now - this.observedSince.get(task)) / 1000000 < LEASE_MILLIS)
+                continue;
+
+            try
+            {
+                Files.move(task, this.pending.resolve(task.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(leaseOf(task));
+                if (this.listener != null)
+                    this.listener.released(taskName(task));
+                reclaimed++;
+            }
+            catch (NoSuchFileException | FileAlreadyExistsException e)
+            {
+                // Another worker reclaimed it, or its worker finished it, first.
+            }
+            this.observedLeases.remove(task);
+            this.observedSince.remove(task);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * @param task claimed task
+     * @return lease file of the task
+     */
+    private static Path leaseOf(Path task)
+    {
+        String name = task.getFileName().toString();
+        return task.resolveSibling(name.substring(0, name.length() - TASK.length()) + LEASE);
+    }
+
+    /**
+     * @param task claimed task
+     * @return content of the task's lease, owner and heartbeat count, or an empty string if it has none
+     * @throws IOException if the lease can't be read
+     */
+    private static String readLease(Path task) throws IOException
+    {
+        try
+        {
+            return new String(Files.readAllBytes(leaseOf(task)), StandardCharsets.UTF_8).trim();
+        }
+        catch (NoSuchFileException e)
+        {
+            return "";
+        }
+    }
+
+    /**
+     * Writes this worker's lease on a task, replacing the previous one in one step
+     * @param task claimed task
+     * @param heartbeat heartbeat count
+     * @throws IOException if the lease can't be written
+     */
+    private void writeLease(Path task, long heartbeat) throws IOException
+    {
+        Path lease = leaseOf(task);
+        Path temporary = lease.resolveSibling(lease.getFileName() + "." + UUID.randomUUID());
+        write(temporary, this.owner + " " + heartbeat);
+        Files.move(temporary, lease, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @param task claimed task
+     * @return true if this worker still holds the task's lease
+     * @throws IOException if the lease can't be read
+     */
+    private boolean isOwner(Path task) throws IOException
+    {
+        return readLease(task).startsWith(this.owner + " ");
+    }
+
+    /**
+     * Solves a claimed task child by child, checkpointing every child solved, then records its value
+     * @param task claimed task
+     * @param worker name of this worker
+     * @param miniMax search to solve the children with
+     * @throws IOException if the work directory can't be read or written
+     * @throws InterruptedException if interrupted while stopping the heartbeat
+     */
+    private void solve(Path task, String worker, MiniMax miniMax) throws IOException, InterruptedException
+    {
+        String name = taskName(task);
+        ILayout board = new Board();
+        for (int move : parse(new String(Files.readAllBytes(task), StandardCharsets.UTF_8)))
+            board.move(move);
+
+        Path checkpoint = this.checkpoints.resolve(name + CHECKPOINT);
+        Map<Integer, Integer> values = readCheckpoint(checkpoint);
+        Thread heartbeat = new Thread(() -> this.heartbeat(task), "heartbeat-" + name);
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+        try
+        {
+            int[] moves = new int[board.getAvailableMoveCount()];
+            int count = board.getAvailableMoves(moves);
+            boolean isX = board.getTurn() == ILayout.ID.X;
+            int best = isX ? Tablebase.O_WINS : Tablebase.X_WINS;
+            for (int i = 0; i < count; i++)
+            {
+                Integer value = values.get(moves[i]);
+                if (value == null)
+                {
+                    board.move(moves[i]);
+                    value = solve(board, miniMax);
+                    board.undoMove();
+                    Files.write(checkpoint, (moves[i] + " " + value + "\n").getBytes(StandardCharsets.UTF_8),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+                }
+                best = isX ? Math.min(best, value) : Math.max(best, value);
+            }
+
+            Path temporary = this.done.resolve(name + RESULT + "." + worker);
+            write(temporary, Integer.toString(best));
+            Files.move(temporary, this.done.resolve(name + RESULT), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            heartbeat.interrupt();
+            heartbeat.join();
+            // A task taken over after the lease expired is left to its new owner, who finds the same value.
+            if (this.isOwner(task))
+            {
+                Files.deleteIfExists(task);
+                Files.deleteIfExists(leaseOf(task));
+                Files.deleteIfExists(checkpoint);
+            }
+            if (this.listener != null)
+                this.listener.solved(name, best);
+        }
+        finally
+        {
+            heartbeat.interrupt();
+        }
+    }
+
+    /**
+     * Solves a position with a search to the end of every line
+     * @param board position, left unchanged
+     * @param miniMax search to use
+     * @return X_WINS, DRAW or O_WINS
+     */
+    private static int solve(ILayout board, MiniMax miniMax)
+    {
+        if (board.isGameOver())
+        {
+            ILayout.ID winner = board.getWinner();
+            return winner == ILayout.ID.X ? Tablebase.X_WINS : winner == ILayout.ID.O ? Tablebase.O_WINS : Tablebase.DRAW;
+        }
+
+        SearchResult result = miniMax.miniMax(board, board.getAvailableMoveCount());
+        if (!result.isProven())
+            throw new IllegalStateException("Search didn't reach the end of the game");
+        return valueOf(result.getScore());
+    }
+
+    /**
+     * Keeps renewing the lease of a task until interrupted, or until the task is taken over
+     * @param task claimed task
+     */
+    private void heartbeat(Path task)
+    {
+        try
+        {
+            for (long heartbeat = 1; ; heartbeat++)
+            {
+                Thread.sleep(HEARTBEAT_MILLIS);
+                if (!this.isOwner(task))
+                    return;
+                this.writeLease(task, heartbeat);
+            }
+        }
+        catch (InterruptedException | IOException e)
+        {
+            // Done, or the lease couldn't be renewed: the result is the same whoever writes it.
+        }
+    }
+
+    /**
+     * Minimaxes the values of the tasks up to the empty board
+     * @return value of the empty board, followed by the value of each first move, in getAvailableMoves order
+     * @throws IOException if the work directory can't be read, or some task isn't solved yet
+     */
+    public int[] combine() throws IOException
+    {
+        int ply = this.checkSplit();
+        Map<Long, Integer> values = new HashMap<>();
+        for (Path result : list(this.done, RESULT))
+        {
+            String name = result.getFileName().toString();
+            values.put(Long.parseUnsignedLong(name.substring(0, name.length() - RESULT.length()), 16),
+                    Integer.parseInt(new String(Files.readAllBytes(result), StandardCharsets.UTF_8).trim()));
+        }
+
+        ILayout board = new Board();
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int count = board.getAvailableMoves(moves);
+        int[] combined = new int[count + 1];
+        boolean isX = board.getTurn() == ILayout.ID.X;
+        combined[0] = isX ? Tablebase.O_WINS : Tablebase.X_WINS;
+        for (int i = 0; i < count; i++)
+        {
+            board.move(moves[i]);
+            combined[i + 1] = combine(board, ply - 1, values);
+            board.undoMove();
+            combined[0] = isX ? Math.min(combined[0], combined[i + 1]) : Math.max(combined[0], combined[i + 1]);
+        }
+        return combined;
+    }
+
+    /**
+     * Minimaxes the values of the tasks up to a position
+     * @param board position, left unchanged
+     * @param depth number of moves to the split ply
+     * @param values value of each task, by canonical hash
+     * @return X_WINS, DRAW or O_WINS
+     * @throws IOException if a task below the position isn't solved yet
+     */
+    private static int combine(ILayout board, int depth, Map<Long, Integer> values) throws IOException
+    {
+        if (board.isGameOver())
+        {
+            ILayout.ID winner = board.getWinner();
+            return winner == ILayout.ID.X ? Tablebase.X_WINS : winner == ILayout.ID.O ? Tablebase.O_WINS : Tablebase.DRAW;
+        }
+        if (depth == 0)
+        {
+            Integer value = values.get(board.getCanonicalHash());
+            if (value == null)
+                throw new IOException("Task " + name(board.getCanonicalHash()) + " isn't solved yet");
+            return value;
+        }
+
+        boolean isX = board.getTurn() == ILayout.ID.X;
+        int best = isX ? Tablebase.O_WINS : Tablebase.X_WINS;
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int count = board.getAvailableMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            board.move(moves[i]);
+            int value = combine(board, depth - 1, values);
+            board.undoMove();
+            best = isX ? Math.min(best, value) : Math.max(best, value);
+        }
+        return best;
+    }
+
+    /**
+     * Checks that the work directory was split for the configured board
+     * @return split ply
+     * @throws IOException if the directory wasn't split, or was split for another board
+     */
+    private int checkSplit() throws IOException
+    {
+        if (!this.isSplit())
+            throw new IOException("Work directory isn't split yet");
+        String[] split = new String(Files.readAllBytes(this.split), StandardCharsets.UTF_8).trim().split(" ");
+        if (!split[0].equals(geometry()))
+            throw new IOException("Work directory was split for a " + split[0] + " board");
+        return Integer.parseInt(split[1]);
+    }
+
+    /**
+     * Reads the children solved so far for a task, ignoring a line cut short by a crash
+     * @param checkpoint checkpoint file
+     * @return value of each child solved, by move
+     * @throws IOException if the checkpoint can't be read
+     */
+    private static Map<Integer, Integer> readCheckpoint(Path checkpoint) throws IOException
+    {
+        Map<Integer, Integer> values = new HashMap<>();
+        if (!Files.exists(checkpoint))
+            return values;
+
+        String content = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8);
+        String[] lines = content.split("\n");
+        int complete = content.endsWith("\n") ? lines.length : lines.length - 1;
+        for (int i = 0; i < complete; i++)
+        {
+            String[] fields = lines[i].trim().split(" ");
+            if (fields.length == 2)
+                values.put(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]));
+        }
+        return values;
+    }
+
+    /**
+     * @param directory directory to list
+     * @param suffix file name suffix
+     * @return the files of the directory with the given suffix, in name order
+     * @throws IOException if the directory can't be read
+     */
+    private static List<Path> list(Path directory, String suffix) throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory))
+        {
+            stream.filter(file -> file.getFileName().toString().endsWith(suffix)).sorted().forEach(files::add);
+        }
+        return files;
+    }
+
+    /**
+     * Writes a small file in one go
+     * @param file file to write
+     * @param content file content
+     * @throws IOException if the file can't be written
+     */
+    private static void write(Path file, String content) throws IOException
+    {
+        Files.write(file, (content + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * @param moves move sequence
+     * @return the moves separated by spaces
+     */
+    private static String format(int[] moves)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int move : moves)
+            builder.append(builder.length() > 0 ? " " : "").append(move);
+        return builder.toString();
+    }
+
+    /**
+     * @param content moves separated by spaces
+     * @return move sequence
+     */
+    private static int[] parse(String content)
+    {
+        String[] fields = content.trim().split(" ");
+        int[] moves = new int[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            moves[i] = Integer.parseInt(fields[i]);
+        return moves;
+    }
+
+    /**
+     * @param hash canonical hash of a task position
+     * @return name of the task files
+     */
+    private static String name(long hash)
+    {
+        return String.format("%016x", hash);
+    }
+
+    /**
+     * @return the configured board geometry, as ROWSxCOLUMNSxK
+     */
+    private static String geometry()
+    {
+        return ILayout.ROWS + "x" + ILayout.COLUMNS + "x" + ILayout.WIN_CONDITION_LENGTH;
+    }
+
+    /**
+     * @param score proven search score
+     * @return X_WINS, DRAW or O_WINS
+     */
+    private static int valueOf(int score)
+    {
+        return MiniMax.isWin(ILayout.ID.X, score) ? Tablebase.X_WINS :
+                MiniMax.isWin(ILayout.ID.O, score) ? Tablebase.O_WINS : Tablebase.DRAW;
+    }
+
+    /**
+     * @param task task file
+     * @return name of the task, its file name without the extension
+     */
+    private static String taskName(Path task)
+    {
+        String name = task.getFileName().toString();
+        return name.substring(0, name.length() - TASK.length());
+    }
+
+    /**
+     * @param value X_WINS, DRAW or O_WINS
+     * @return readable name of the value
+     */
+    private static String valueName(int value)
+    {
+        return value == Tablebase.X_WINS ? "X wins" : value == Tablebase.O_WINS ? "O wins" : "draw";
+    }
+
+    /**
+     * Spawns local worker processes on a work directory (splitting it first if needed) and waits for them
+     * @param directory work directory
+     * @param ply split ply, used only if the directory isn't split yet
+     * @param workers number of worker processes
+     * @throws IOException if the workers can't be started
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static void launch(File directory, int ply, int workers) throws IOException, InterruptedException
+    {
+        DistributedSolver solver = new DistributedSolver(directory);
+        if (!solver.isSplit())
+            System.out.println("Split into " + solver.split(ply) + " tasks");
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < workers; i++)
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    DistributedSolver.class.getName(), "work", directory.getPath()).inheritIO().start());
+        for (Process process : processes)
+            if (process.waitFor() != 0)
+                throw new IOException("Worker exited with status " + process.exitValue());
+    }
+
+    /**
+     * Runs one step of a distributed solve:
+     * <ul>
+     * <li>split &lt;directory&gt; &lt;ply&gt;: writes the tasks</li>
+     * <li>work &lt;directory&gt;: solves tasks until there are none left (run as many as there are cores, on any host sharing the directory)</li>
+     * <li>combine &lt;directory&gt;: prints the value of the game and its best first moves</li>
+     * <li>launch &lt;directory&gt; &lt;ply&gt; [workers]: splits if needed, runs local workers, then combines</li>
+     * </ul>
+     * Any step can be killed and run again: solved tasks and children aren't solved again.
+     * @param args step and its arguments
+     * @throws Exception if the step fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: DistributedSolver split|work|combine|launch <directory> [ply] [workers]");
+            System.exit(2);
+        }
+
+        File directory = new File(args[1]);
+        DistributedSolver solver = new DistributedSolver(directory);
+        switch (args[0])
+        {
+            case "split":
+                System.out.println("Split into " + solver.split(Integer.parseInt(args[2])) + " tasks");
+                return;
+            case "work":
+                String worker = ManagementFactory.getRuntimeMXBean().getName();
+                solver.setListener(new Listener()
+                {
+                    @Override
+                    public void solved(String task, int value)
+                    {
+                        System.out.println(worker + " solved " + task + ": " + valueName(value));
+                    }
+
+                    @Override
+                    public void released(String task)
+                    {
+                        System.out.println("Lease expired, releasing " + task);
+                    }
+                });
+                System.out.println("Solved " + solver.work() + " tasks");
+                return;
+            case "launch":
+                launch(directory, Integer.parseInt(args[2]),
+                        args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors());
+                break;
+            case "combine":
+                break;
+            default:
+                System.err.println("Unknown step " + args[0]);
+                System.exit(2);
+        }
+
+        int[] combined = solver.combine();
+        Board board = new Board();
+        int[] moves = new int[board.getAvailableMoveCount()];
+        board.getAvailableMoves(moves);
+        StringBuilder best = new StringBuilder();
+        for (int i = 1; i < combined.length; i++)
+            if (combined[i] == combined[0])
+                best.append(best.length() > 0 ? ", " : "").append(moves[i - 1]);
+        System.out.println("Value: " + valueName(combined[0]) + ", best first moves: " + best);
+    }
+}
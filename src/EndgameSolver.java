@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Exact solver for the configured board (up to 64 cells) once few empty cells are left. Positions are a pair of
+ * bit masks, one per player, so moving is a couple of bitwise operations and there is no heuristic evaluation:
+ * a line is only over when someone completes a window or the board fills up. Winning moves are played right away,
+ * the opponent's winning cell is the only move considered, and the remaining moves are searched threats first.
+ * Solved positions are kept on a small table of their own, which stays valid between calls.
+ * <p>
+ * Scores are from the point of view of the player to move: WIN - n if they win in n plies,
+ * -(WIN - n) if they lose in n plies, and 0 for a draw.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+class EndgameSolver
+{
+    static final int WIN = 1000;
+
+    private static final int CELLS = ILayout.ROWS * ILayout.COLUMNS;
+    private static final long BOARD = CELLS == 64 ? -1L : (1L << CELLS) - 1;
+    private static final long[] WINDOWS = computeWindows();
+    private static final int CACHE_BITS = 16;
+    private static final byte EXACT = 1;
+    private static final byte LOWER_BOUND = 2;
+    private static final byte UPPER_BOUND = 3;
+
+    private final long[] cachedStones;
+    private final long[] cachedOpponentStones;
+    private final int[] cachedScores;
+    private final byte[] cachedBounds;
+    private int bestMove;
+    private long nodes;
+
+    /**
+     * Creates a solver with an empty cache
+     */
+    EndgameSolver()
+    {
+        if (CELLS > 64)
+            throw new IllegalStateException("Board too big for the endgame solver");
+
+        this.cachedStones = new long[1 << CACHE_BITS];
+        this.cachedOpponentStones = new long[1 << CACHE_BITS];
+        this.cachedScores = new int[1 << CACHE_BITS];
+        this.cachedBounds = new byte[1 << CACHE_BITS];
+    }
+
+    /**
+     * @return bit mask of every window of WIN_CONDITION_LENGTH cells in a row, in any direction
+     */
+    private static long[] computeWindows()
+    {
+        if (CELLS > 64)
+            return new long[0];
+
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+        ArrayList<Long> windows = new ArrayList<>();
+        for (int[] direction : directions)
+            for (int y = 0; y < ILayout.ROWS; y++)
+                for (int x = 0; x < ILayout.COLUMNS; x++)
+                {
+                    int endX = x + (ILayout.WIN_CONDITION_LENGTH - 1) * direction[0];
+                    int endY = y + (ILayout.WIN_CONDITION_LENGTH - 1) * direction[1];
+                    if (endX < 0 || endX >= ILayout.COLUMNS || endY >= ILayout.ROWS)
+                        continue;
+
+                    long window = 0;
+                    for (int i = 0; i < ILayout.WIN_CONDITION_LENGTH; i++)
+                        window |= 1L << ((y + i * direction[1]) * ILayout.COLUMNS + x + i * direction[0]);
+                    windows.add(window);
+                }
+        return windows.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Solves a position
+     * @param board position, which must not be over
+     * @return score of the position for the player to move
+     */
+    int solve(Board board)
+    {
+        ILayout.ID turn = board.getTurn();
+        long stones = board.getStones(turn);
+        long opponentStones = board.getStones(turn == ILayout.ID.X ? ILayout.ID.O : ILayout.ID.X);
+        this.bestMove = -1;
+        return this.solve(stones, opponentStones, -WIN, WIN, true);
+    }
+
+    /**
+     * @return best move found by the last call to solve
+     */
+    int getBestMove()
+    {
+        return this.bestMove;
+    }
+
+    /**
+     * @return number of positions searched since the solver was created
+     */
+    long getNodes()
+    {
+        return this.nodes;
+    }
+
+    /**
+     * @param score score returned by solve
+     * @return number of plies to the end of the game under best play, or -1 for a draw
+     */
+    static int getDistance(int score)
+    {
+        return score == 0 ? -1 : WIN - Math.abs(score);
+    }
+
+    /**
+     * Negamax search with scores relative to the position, so that they can be cached whatever the root
+     * @param stones stones of the player to move
+     * @param opponentStones stones of the other player
+     * @param alpha alpha value
+     * @param beta beta value
+     * @param isRoot true to record the best move
+     * @return score of the position for the player to move
+     */
+    private int solve(long stones, long opponentStones, int alpha, int beta, boolean isRoot)
+    {
+        this.nodes++;
+        long empty = BOARD & ~(stones | opponentStones);
+        long wins = threats(stones, opponentStones) & empty;
+        if (wins != 0)
+        {
+            if (isRoot)
+                this.bestMove = Long.numberOfTrailingZeros(wins);
+            return WIN - 1;
+        }
+        if (empty == 0)
+            return 0;
+
+        long blocks = threats(opponentStones, stones) & empty;
+        if (Long.bitCount(blocks) > 1)
+        {
+            if (isRoot)
+                this.bestMove = Long.numberOfTrailingZeros(blocks);
+            return -(WIN - 2);
+        }
+
+        int slot = slot(stones, opponentStones);
+        boolean isCached = !isRoot && this.cachedStones[slot] == stones && this.cachedOpponentStones[slot] == opponentStones &&
+                this.cachedBounds[slot] != 0;
+        if (isCached)
+        {
+            int score = this.cachedScores[slot];
+            byte bound = this.cachedBounds[slot];
+            if (bound == EXACT || (bound == LOWER_BOUND && score >= beta) || (bound == UPPER_BOUND && score <= alpha))
+                return score;
+        }
+
+        // Moves that make a threat (or stop the opponent from making one) first, the others after.
+        long makes = 0;
+        long stops = 0;
+        if (blocks == 0)
+        {
+            makes = nearThreats(stones, opponentStones) & empty;
+            stops = nearThreats(opponentStones, stones) & empty;
+        }
+
+        int alphaOriginal = alpha;
+        int best = -WIN;
+        for (int group = 0; group < 4 && alpha < beta; group++)
+        {
+            long moves;
+            if (blocks != 0)
+                moves = group == 0 ? blocks : 0;
+            else if (group == 0)
+                moves = makes & stops;
+            else if (group == 1)
+                moves = makes & ~stops;
+            else if (group == 2)
+                moves = stops & ~makes;
+            else
+                moves = empty & ~(makes | stops);
+
+            for (; moves != 0 && alpha < beta; moves &= moves - 1)
+            {
+                long move = moves & -moves;
+                int childScore = this.solve(opponentStones, stones | move, -toChild(beta), -toChild(alpha), false);
+                int score = fromChild(-childScore);
+                if (score > best)
+                {
+                    best = score;
+                    if (isRoot)
+                        this.bestMove = Long.numberOfTrailingZeros(move);
+                }
+                alpha = Math.max(alpha, score);
+            }
+        }
+
+        this.cachedStones[slot] = stones;
+        this.cachedOpponentStones[slot] = opponentStones;
+        this.cachedScores[slot] = best;
+        this.cachedBounds[slot] = best <= alphaOriginal ? UPPER_BOUND : best >= beta ? LOWER_BOUND : EXACT;
+        return best;
+    }
+
+    /**
+     * Turns the score of the position after a move, negated, into the score of the position before it,
+     * one ply further from the end
+     * @param score negated score of the child position
+     * @return score of the position
+     */
+    private static int fromChild(int score)
+    {
+        return score > 0 ? score - 1 : score < 0 ? score + 1 : 0;
+    }
+
+    /**
+     * Inverse of fromChild, for passing a search window down to a child
+     * @param score score bound of the position
+     * @return the matching bound on the negated score of the child
+     */
+    private static int toChild(int score)
+    {
+        return score > 0 ? Math.min(WIN, score + 1) : score < 0 ? Math.max(-WIN, score - 1) : 0;
+    }
+
+    /**
+     * @param stones stones of a player
+     * @param opponentStones stones of the other player
+     * @return cells that would complete a window for the player
+     */
+    private static long threats(long stones, long opponentStones)
+    {
+        long threats = 0;
+        for (long window : WINDOWS)
+            if ((window & opponentStones) == 0 && Long.bitCount(window & stones) == ILayout.WIN_CONDITION_LENGTH - 1)
+                threats |= window & ~stones;
+        return threats;
+    }
+
+    /**
+     * @param stones stones of a player
+     * @param opponentStones stones of the other player
+     * @return cells that would leave the player one stone short of completing a window
+     */
+    private static long nearThreats(long stones, long opponentStones)
+    {
+        long nearThreats = 0;
+        for (long window : WINDOWS)
+            if ((window & opponentStones) == 0 && Long.bitCount(window & stones) == ILayout.WIN_CONDITION_LENGTH - 2)
+                nearThreats |= window & ~stones;
+        return nearThreats;
+    }
+
+    /**
+     * @param stones stones of the player to move
+     * @param opponentStones stones of the other player
+     * @return cache slot of the position
+     */
+    private static int slot(long stones, long opponentStones)
+    {
+        long hash = (stones * 0x9E3779B97F4A7C15L) ^ (opponentStones * 0xC2B2AE3D27D4EB4FL);
+        return (int) (hash >>> (64 - CACHE_BITS));
+    }
+
+    /**
+     * Forgets every cached position
+     */
+    void clear()
+    {
+        Arrays.fill(this.cachedBounds, (byte) 0);
+    }
+}
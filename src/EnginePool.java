@@ -0,0 +1,252 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of search engines serving move requests from many games at once. Requests wait in a priority queue
+ * (higher priority first, then earliest deadline first) for one of a fixed set of worker threads, each of
+ * which keeps its own MiniMax, so that search buffers and transposition tables are reused between requests.
+ * When load peaks the pool searches shallower instead of letting requests wait longer: the search depth drops
+ * by one ply per request queued for each worker, a request whose deadline passed while it was queued is searched
+ * one ply deep, and a request arriving to a full queue is answered straight away with a one ply search, on an
+ * engine kept aside for that.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class EnginePool implements AutoCloseable
+{
+    private static final int SHED_TRANSPOSITION_TABLE_BITS = 10;
+    private static final long LATE_TIME_LIMIT = 1;
+
+    private final PriorityBlockingQueue<MoveRequest> queue;
+    private final ConcurrentLinkedQueue<MiniMax> shedEngines;
+    private final Object lock;
+    private final Thread[] workers;
+    private final int queueCapacity;
+    private final AtomicLong sequence;
+    private final AtomicLong completed;
+    private final AtomicLong degraded;
+    private final AtomicLong shed;
+    private volatile boolean isClosed;
+
+    /**
+     * Creates a pool and starts its workers
+     * @param workers number of worker threads
+     * @param queueCapacity number of requests that can wait for a worker before new ones are shed
+     */
+    public EnginePool(int workers, int queueCapacity)
+    {
+        if (workers < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("Invalid pool size");
+
+        this.queue = new PriorityBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.shedEngines = new ConcurrentLinkedQueue<>();
+        this.lock = new Object();
+        this.sequence = new AtomicLong();
+        this.completed = new AtomicLong();
+        this.degraded = new AtomicLong();
+        this.shed = new AtomicLong();
+        this.workers = new Thread[workers];
+        for (int i = 0; i < workers; i++)
+        {
+            this.workers[i] = new Thread(this::work, "engine-" + i);
+            this.workers[i].setDaemon(true);
+            this.workers[i].start();
+        }
+    }
+
+    /**
+     * Requests a move
+     * @param board position to play on (copied, so the caller may keep using it)
+     * @param depth search depth limit
+     * @param timeLimit time budget in milliseconds, counted from now
+     * @param priority requests with higher priority are served first
+     * @return the search result, completed once the move is found, or failed if the pool is closed
+     */
+    public CompletableFuture<SearchResult> submit(ILayout board, int depth, long timeLimit, int priority)
+    {
+        if (depth < 1)
+            throw new IllegalArgumentException("Invalid depth");
+
+        MoveRequest request = new MoveRequest((ILayout) board.clone(), depth, System.nanoTime() + timeLimit * 1000000,
+                priority, this.sequence.getAndIncrement());
+        // Checking for room and queueing happen together, and never after close, so every queued request is served.
+        synchronized (this.lock)
+        {
+            if (this.isClosed)
+            {
+                request.result.completeExceptionally(new IllegalStateException("Engine pool is closed"));
+                return request.result;
+            }
+            if (this.queue.size() < this.queueCapacity)
+            {
+                this.queue.add(request);
+                return request.result;
+            }
+        }
+
+        this.shed.incrementAndGet();
+        MiniMax miniMax = this.shedEngines.poll();
+        if (miniMax == null)
+            miniMax = new MiniMax(SHED_TRANSPOSITION_TABLE_BITS);
+        try
+        {
+            request.result.complete(miniMax.miniMax(request.board, 1));
+        }
+        catch (RuntimeException e)
+        {
+            request.result.completeExceptionally(e);
+        }
+        finally
+        {
+            this.shedEngines.offer(miniMax);
+        }
+        return request.result;
+    }
+
+    /**
+     * Worker loop: serves requests until the pool is closed and the queue is empty
+     */
+    private void work()
+    {
+        MiniMax miniMax = new MiniMax();
+        while (!this.isClosed || !this.queue.isEmpty())
+        {
+            MoveRequest request;
+            try
+            {
+                request = this.queue.poll(100, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            if (request == null)
+                continue;
+
+            int depth = request.depth;
+            long timeLimit = (request.deadline - System.nanoTime()) / 1000000;
+            int backlog = this.queue.size() / this.workers.length;
+            if (timeLimit <= 0)
+            {
+                depth = 1;
+                timeLimit = LATE_TIME_LIMIT;
+            }
+            else if (backlog > 0)
+                depth = Math.max(1, depth - backlog);
+            if (depth < request.depth)
+                this.degraded.incrementAndGet();
+
+            try
+            {
+                request.result.complete(miniMax.IterativeDeepeningMiniMax(request.board, depth, timeLimit));
+            }
+            catch (RuntimeException e)
+            {
+                request.result.completeExceptionally(e);
+            }
+            this.completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of requests served by the workers
+     */
+    public long getCompleted()
+    {
+        return this.completed.get();
+    }
+
+    /**
+     * @return number of requests the workers searched shallower than requested because of load or lateness
+     */
+    public long getDegraded()
+    {
+        return this.degraded.get();
+    }
+
+    /**
+     * @return number of requests answered on arrival because the queue was full
+     */
+    public long getShed()
+    {
+        return this.shed.get();
+    }
+
+    /**
+     * @return number of requests waiting for a worker
+     */
+    public int getQueued()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * Stops accepting requests and waits for the queued ones to be served. If interrupted while waiting,
+     * returns right away with the thread's interrupt flag set, and the workers finish on their own.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this.lock)
+        {
+            this.isClosed = true;
+        }
+
+        try
+        {
+            for (Thread worker : this.workers)
+                worker.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A move request waiting for a worker
+     * @author Alexandre Rodrigues
+     * @version 1.0 29/11/2023
+     */
+    private static class MoveRequest implements Comparable<MoveRequest>
+    {
+        private final ILayout board;
+        private final int depth;
+        private final long deadline;
+        private final int priority;
+        private final long sequence;
+        private final CompletableFuture<SearchResult> result;
+
+        /**
+         * Creates a new request
+         * @param board position to play on
+         * @param depth search depth limit
+         * @param deadline System.nanoTime() by which the move is due
+         * @param priority requests with higher priority are served first
+         * @param sequence arrival order, to break ties
+         */
+        private MoveRequest(ILayout board, int depth, long deadline, int priority, long sequence)
+        {
+            this.board = board;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.result = new CompletableFuture<>();
+        }
+
+        @Override
+        public int compareTo(MoveRequest that)
+        {
+            if (this.priority != that.priority)
+                return Integer.compare(that.priority, this.priority);
+            if (this.deadline != that.deadline)
+                return this.deadline - that.deadline < 0 ? -1 : 1;
+            return Long.compare(this.sequence, that.sequence);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size cache of position evaluations, kept apart from the transposition table since an evaluation
+ * doesn't depend on the depth or window it was asked for. Entries are two longs, the evaluation and the position
+ * hash xor the evaluation, read and written without locks: an entry torn by two threads writing at once fails
+ * that check and reads as a miss, so one cache can be shared by engines on several threads.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class EvaluationCache
+{
+    private static final long PRESENT = 1L << 32;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    /**
+     * Creates an empty cache with 2^bits entries
+     * @param bits base 2 logarithm of the number of entries
+     */
+    public EvaluationCache(int bits)
+    {
+        if (bits < 1 || bits > 28)
+            throw new IllegalArgumentException("Invalid cache size");
+
+        this.entries = new AtomicLongArray(2 << bits);
+        this.mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Looks up a position
+     * @param key position hash
+     * @return the packed evaluation of the position, or 0 if it isn't stored
+     */
+    long probe(long key)
+    {
+        int index = this.index(key);
+        long data = this.entries.getOpaque(index + 1);
+        long check = this.entries.getOpaque(index);
+        return data != 0 && (check ^ data) == key ? data : 0;
+    }
+
+    /**
+     * Stores the evaluation of a position, replacing whatever was on its entry
+     * @param key position hash
+     * @param evaluation evaluation of the position
+     */
+    void store(long key, int evaluation)
+    {
+        int index = this.index(key);
+        long data = PRESENT | (evaluation & 0xFFFFFFFFL);
+        this.entries.setOpaque(index + 1, data);
+        this.entries.setOpaque(index, key ^ data);
+    }
+
+    /**
+     * @param data packed evaluation
+     * @return evaluation of the position
+     */
+    static int getEvaluation(long data)
+    {
+        return (int) data;
+    }
+
+    /**
+     * Forgets every evaluation, which must be done before sharing the cache with an engine using another evaluator
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.entries.length(); i++)
+            this.entries.setOpaque(i, 0);
+    }
+
+    /**
+     * @param key position hash
+     * @return index of the first long of the entry the key maps to
+     */
+    private int index(long key)
+    {
+        return ((int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & this.mask) * 2;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Heuristic evaluation used by MiniMax on positions that aren't over yet. Positions that are over are always
+ * scored by the layout itself, so evaluators only need to estimate positions still in play.
+ * <p>
+ * Evaluations must be the same for all the symmetric positions of a layout (rotations and reflections of the board,
+ * for Board). MiniMax keys its transposition table, the persistent cache and the evaluation cache by the canonical
+ * hash, which symmetric positions share, so it reuses the value of one of them for all the others. An evaluator
+ * that favours a particular cell, rather than every cell symmetric to it, makes the search unsound.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+interface Evaluator
+{
+    /**
+     * Evaluator that asks the layout for its own evaluation
+     */
+    Evaluator LAYOUT = ILayout::getEvaluation;
+
+    /**
+     * Evaluates a position, which must be left as it was found, giving every symmetric position the same evaluation
+     * @param layout position still in play
+     * @return evaluation of the position, from X's point of view, more than MAX_WIN_DISTANCE away from both
+     * MIN_EVALUATION and MAX_EVALUATION, which are left for proven wins
+     */
+    int evaluate(ILayout layout);
+}
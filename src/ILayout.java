@@ -13,6 +13,8 @@ interface ILayout
     enum ID {Blank, X, O}
     int MAX_EVALUATION = Integer.MAX_VALUE - 1;
     int MIN_EVALUATION = Integer.MIN_VALUE + 1;
+    // Searches count wins this many plies down from MAX_EVALUATION, so heuristic evaluations stay clear of them.
+    int MAX_WIN_DISTANCE = 1 << 16;
 
     /**
      * Places an X or an O on the specified index depending on whose turn it is.
@@ -21,6 +23,11 @@ interface ILayout
      */
     boolean move(int index);
 
+    /**
+     * Takes back the last move played, restoring the layout to the state it had before it.
+     */
+    void undoMove();
+
     /**
      * @return true if the game is over; false otherwise
      */
@@ -37,23 +44,86 @@ interface ILayout
     ID getWinner();
 
     /**
-     * Get the indexes of all the positions on the board that are empty.
-     * @return the empty cells
+     * @return the number of empty cells that can still be played
+     */
+    int getAvailableMoveCount();
+
+    /**
+     * Copies the indexes of all the positions on the board that are empty into the given buffer.
+     * @param moves buffer to fill, must hold at least getAvailableMoveCount() entries
+     * @return the number of moves written to the buffer
+     */
+    int getAvailableMoves(int[] moves);
+
+    /**
+     * Lists the moves the player at turn is forced to play: a move that wins right away if there is one,
+     * otherwise every move that stops the opponent from winning on their next move.
+     * @param moves buffer to fill, must hold at least getAvailableMoveCount() entries
+     * @return the number of moves written to the buffer, 0 if no move is forced
+     */
+    int getForcedMoves(int[] moves);
+
+    /**
+     * @return 64-bit hash of the position
      */
-    HashSet<Integer> getAvailableMoves();
+    long getHash();
 
     /**
-     * @return the children of the receiver.
+     * @return 64-bit hash of the position that is shared by all of its symmetric positions
      */
-    ArrayList<ILayout> getChildren();
+    long getCanonicalHash();
 
     /**
-     * @return the children of the receiver and their respective actions.
-    */
-    HashMap<ILayout, Integer> getChildrenActions();
+     * @return a deep copy of the layout
+     */
+    Object clone();
 
     /**
      * @return the layout's evaluation.
      */
     int getEvaluation();
+
+    /**
+     * Checks if a player may still win, i.e. if some window of WIN_CONDITION_LENGTH cells holds none of the
+     * opponent's stones. Layouts that don't keep track of it always answer true.
+     * @param player X or O
+     * @return false if the player can no longer win
+     */
+    default boolean canWin(ID player)
+    {
+        return true;
+    }
+
+    /**
+     * Get the indexes of all the positions on the board that are empty.
+     * @return the empty cells
+     */
+    default HashSet<Integer> getAvailableMoves()
+    {
+        int[] moves = new int[this.getAvailableMoveCount()];
+        int count = this.getAvailableMoves(moves);
+        HashSet<Integer> availableMoves = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++)
+            availableMoves.add(moves[i]);
+        return availableMoves;
+    }
+
+    /**
+     * @return the children of the receiver, leaving out children symmetric to one already listed.
+     */
+    default ArrayList<ILayout> getChildren()
+    {
+        int[] moves = new int[this.getAvailableMoveCount()];
+        int count = this.isGameOver() ? 0 : this.getAvailableMoves(moves);
+        ArrayList<ILayout> children = new ArrayList<>(count);
+        HashSet<Long> canonicalHashes = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++)
+        {
+            ILayout child = (ILayout) this.clone();
+            child.move(moves[i]);
+            if (canonicalHashes.add(child.getCanonicalHash()))
+                children.add(child);
+        }
+        return children;
+    }
 }
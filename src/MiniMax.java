@@ -1,6 +1,6 @@
-import java.util.HashMap;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Minimax implementation
@@ -9,215 +9,899 @@ import java.util.Comparator;
  */
 public class MiniMax
 {
-    private HashMap<ILayout, State> evaluated;
+    private static final int TRANSPOSITION_TABLE_BITS = 20;
+    private static final int EXHAUSTIVE_DEPTH = Integer.MAX_VALUE;
+    private static final int LATE_MOVE_REDUCTION_MIN_DEPTH = 3;
+    private static final int LATE_MOVE_REDUCTION_FULL_DEPTH_MOVES = 3;
+    private static final int FUTILITY_MARGIN = 5000;
+    private static final int RAZOR_MARGIN = 50000;
+    private static final int PERSISTENT_CACHE_MIN_DEPTH = 6;
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private final TranspositionTable evaluated;
+    private final SearchStatistics statistics;
+    private boolean lateMoveReductions;
+    private boolean futilityPruning;
+    private PersistentCache persistentCache;
+    private SearchTracer tracer;
+    private EndgameSolver endgameSolver;
+    private int endgameEmptyCells;
+    private Evaluator evaluator;
+    private EvaluationCache evaluationCache;
+    private ILayout layout;
+    private int[][] moves;
+    private int[][] scores;
+    private int[][] principalVariation;
+    private int[] principalVariationLength;
+    private long nodes;
+    private long horizonNodes;
+    private boolean hasDeadline;
+    private long deadline;
+    private boolean aborted;
+    private int rootHint;
+
+    /**
+     * Creates a new search with an empty transposition table
+     */
+    public MiniMax()
+    {
+        this(TRANSPOSITION_TABLE_BITS);
+    }
+
+    /**
+     * Creates a new search with an empty transposition table of the given size
+     * @param transpositionTableBits base 2 logarithm of the number of transposition table entries
+     */
+    public MiniMax(int transpositionTableBits)
+    {
+        this.evaluated = new TranspositionTable(transpositionTableBits);
+        this.statistics = new SearchStatistics();
+        this.evaluator = Evaluator.LAYOUT;
+        this.moves = new int[0][];
+        this.scores = new int[0][];
+        this.principalVariation = new int[0][];
+        this.principalVariationLength = new int[0];
+    }
+
+    /**
+     * Enables late move reductions: once the first few moves of a position are searched, the remaining
+     * ones are searched one ply shallower and only searched again at full depth if they turn out better.
+     * Moves are then ordered by evaluation on every position, not only on the root.
+     * @param lateMoveReductions true to enable
+     */
+    public void setLateMoveReductions(boolean lateMoveReductions)
+    {
+        this.lateMoveReductions = lateMoveReductions;
+    }
+
+    /**
+     * Enables futility pruning and razoring: positions one (or two) moves from the horizon whose evaluation
+     * is too far behind to reach the search window within that many moves aren't searched.
+     * @param futilityPruning true to enable
+     */
+    public void setFutilityPruning(boolean futilityPruning)
+    {
+        this.futilityPruning = futilityPruning;
+    }
+
+    /**
+     * Backs the transposition table with a cache that outlives this search (and this process), and so may be shared
+     * with searches set up differently. Results searched to the end of every line hold for any search and are always
+     * written to it. Results searched at least PERSISTENT_CACHE_MIN_DEPTH plies deep are only shared between plain
+     * searches, without late move reductions, futility pruning nor a custom evaluator, as other searches may find
+     * other values at the same depth.
+     * @param persistentCache the cache, or null to search without one
+     */
+    public void setPersistentCache(PersistentCache persistentCache)
+    {
+        this.persistentCache = persistentCache;
+    }
+
+    /**
+     * Hands the positions of the configured board with at most the given number of empty cells to an exact solver
+     * working on bit masks, which proves their value far faster than searching them here, whatever the depth limit.
+     * @param emptyCells largest number of empty cells to solve exactly, or 0 to always search
+     */
+    public void setEndgameSolver(int emptyCells)
+    {
+        if (emptyCells > 0 && this.endgameSolver == null)
+            this.endgameSolver = new EndgameSolver();
+        this.endgameEmptyCells = emptyCells;
+    }
+
+    /**
+     * Replaces the heuristic evaluation of the positions that aren't over yet, which by default is the layout's own
+     * @param evaluator the evaluation, the same for all symmetric positions, or null to go back to the layout's
+     */
+    public void setEvaluator(Evaluator evaluator)
+    {
+        this.evaluator = evaluator != null ? evaluator : Evaluator.LAYOUT;
+    }
+
+    /**
+     * Puts a cache in front of the evaluator, so that a position reached again through another move order, or by
+     * another search, is evaluated with a single probe. Only worth it when the evaluator is slower than that probe,
+     * which the layouts' own incremental evaluations aren't. The cache may be shared with other engines using the
+     * same evaluator.
+     * @param evaluationCache the cache, or null to evaluate every time
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache)
+    {
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * Records every position searched from now on, for TraceAnalyzer. Tracing slows the search down, and does
+     * nothing (beyond a null check per event) while off.
+     * @param tracer the recorder, or null to stop tracing
+     */
+    public void setTracer(SearchTracer tracer)
+    {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return how often the selective search features fired during the last search
+     */
+    public SearchStatistics getStatistics()
+    {
+        return this.statistics;
+    }
 
     /**
      * Public call to miniMax
      * @param board current position
      * @param depth search depth limit
-     * @return the layout that corresponds to the move that miniMax calculated to be the best
+     * @return the move that miniMax calculated to be the best, with its score and principal variation
      */
-    public ILayout miniMax(ILayout board, int depth)
+    public SearchResult miniMax(ILayout board, int depth)
     {
         if (depth < 1)
             throw new IllegalArgumentException("Invalid depth");
 
-        return this.miniMax(new State(board, true, ILayout.MIN_EVALUATION, ILayout.MAX_EVALUATION), depth).layout;
+        this.evaluated.clear();
+        this.statistics.reset();
+        this.rootHint = -1;
+        return this.miniMax(board, depth, ILayout.MIN_EVALUATION, ILayout.MAX_EVALUATION);
     }
 
     /**
-     * Initial call to miniMax
+     * Searches the position once for its best few moves rather than only the best one. Every root move is searched
+     * with a window whose bound is the score of the worst move still on the list, so only moves good enough to make
+     * the list get an exact score; the others fail low cheaply. All of them share the transposition table.
      * @param board current position
      * @param depth search depth limit
-     * @return the state that corresponds to the move that miniMax calculated to be the best
+     * @param lines number of moves to return
+     * @return the best moves, best first, each with its own score and principal variation,
+     * or an empty list if the game is already over
      */
-    private State miniMax(State board, int depth)
+    public List<SearchResult> multiPV(ILayout board, int depth, int lines)
     {
-        this.evaluated = new HashMap<>();
+        if (depth < 1)
+            throw new IllegalArgumentException("Invalid depth");
+        if (lines < 1)
+            throw new IllegalArgumentException("Invalid number of lines");
+
+        this.evaluated.clear();
+        this.statistics.reset();
+        this.layout = (ILayout) board.clone();
+        this.ensureCapacity(depth + 1);
+        this.nodes = 0;
+        this.horizonNodes = 0;
+        this.aborted = false;
+        if (this.tracer != null)
+            this.tracer.start(this.layout.getCanonicalHash(), depth);
 
-        if (board.isMax)
-            return this.maxValue(board, depth);
+        List<SearchResult> results = new ArrayList<>();
+        if (this.layout.isGameOver())
+            return results;
+
+        // Every move is ranked, not only the forced ones, as the others are what is being compared against.
+        boolean isMax = this.layout.getTurn() == ILayout.ID.X;
+        int[] moves = this.generateMoves(0);
+        int count = this.layout.getAvailableMoves(moves);
+        this.sortMoves(moves, count, 0, isMax);
+
+        for (int i = 0; i < count; i++)
+        {
+            int bound;
+            if (results.size() < lines)
+                bound = isMax ? ILayout.MIN_EVALUATION : ILayout.MAX_EVALUATION;
+            else
+                bound = results.get(lines - 1).getScore();
+
+            long horizonNodes = this.horizonNodes;
+            this.layout.move(moves[i]);
+            int evaluation;
+            if (isMax)
+                evaluation = this.minValue(depth - 1, 1, bound, ILayout.MAX_EVALUATION);
+            else
+                evaluation = this.maxValue(depth - 1, 1, ILayout.MIN_EVALUATION, bound);
+            this.layout.undoMove();
+            if (results.size() >= lines && (isMax ? evaluation <= bound : evaluation >= bound))
+                continue;
+
+            // Keep the list sorted, earlier moves first among equal scores.
+            int position = results.size();
+            while (position > 0 && (isMax ? results.get(position - 1).getScore() < evaluation :
+                    results.get(position - 1).getScore() > evaluation))
+                position--;
+            this.updatePrincipalVariation(0, moves[i]);
+            int[] principalVariation = Arrays.copyOf(this.principalVariation[0], this.principalVariationLength[0]);
+            boolean proven = this.horizonNodes == horizonNodes || isWin(ILayout.ID.X, evaluation) || isWin(ILayout.ID.O, evaluation);
+            results.add(position, new SearchResult(moves[i], evaluation, proven, principalVariation, depth, 0));
+            if (results.size() > lines)
+                results.remove(lines);
+        }
+
+        // The lines share one search, so each reports the nodes of all of it.
+        for (int i = 0; i < results.size(); i++)
+        {
+            SearchResult result = results.get(i);
+            results.set(i, new SearchResult(result.getBestMove(), result.getScore(), result.isProven(),
+                    result.getPrincipalVariation(), depth, this.nodes));
+        }
+        return results;
+    }
+
+    /**
+     * Initial call to miniMax, searching a copy of the board in place
+     * @param board current position
+     * @param depth search depth limit
+     * @param alpha alpha value
+     * @param beta beta value
+     * @return the move that miniMax calculated to be the best, with its score and principal variation,
+     * or null if the search ran out of time
+     */
+    private SearchResult miniMax(ILayout board, int depth, int alpha, int beta)
+    {
+        this.layout = (ILayout) board.clone();
+        this.ensureCapacity(depth + 1);
+        this.nodes = 0;
+        this.horizonNodes = 0;
+        this.aborted = false;
+        if (this.tracer != null)
+            this.tracer.start(this.layout.getCanonicalHash(), depth);
+
+        int evaluation;
+        if (this.layout.getTurn() == ILayout.ID.X)
+            evaluation = this.maxValue(depth, 0, alpha, beta);
         else
-            return this.minValue(board, depth);
+            evaluation = this.minValue(depth, 0, alpha, beta);
+        if (this.aborted)
+            return null;
+
+        int[] principalVariation = Arrays.copyOf(this.principalVariation[0], this.principalVariationLength[0]);
+        boolean proven = this.horizonNodes == 0 || isWin(ILayout.ID.X, evaluation) || isWin(ILayout.ID.O, evaluation);
+        return new SearchResult(principalVariation.length > 0 ? principalVariation[0] : -1, evaluation, proven,
+                principalVariation, depth, this.nodes);
     }
 
     /**
-     * Logic to be applied on every maximizing state during the search
-     * @param current current position on the search
+     * Logic to be applied on every maximizing position during the search
      * @param depth search depth limit
-     * @return the state that corresponds to the move calculated to be the best from current state
+     * @param ply distance to the root
+     * @param alpha alpha value
+     * @param beta beta value
+     * @return the evaluation of the best move from the current position
      */
-    private State maxValue(State current, int depth)
+    private int maxValue(int depth, int ply, int alpha, int beta)
     {
-        if (!current.isMax)
-            throw new IllegalArgumentException("State isn't maximizing state");
-        if (current.layout.isGameOver() || depth <= 0)
+        this.nodes++;
+        this.principalVariationLength[ply] = 0;
+        if (this.hasDeadline && this.nodes % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - this.deadline > 0)
+            this.aborted = true;
+        if (this.aborted)
+            return 0;
+        if (this.tracer != null)
+            this.tracer.enter(this.layout.getCanonicalHash(), ply, depth, alpha, beta);
+        if (this.layout.isGameOver())
+            return fromPosition(this.layout.getEvaluation(), ply);
+        if (this.isEndgame())
+            return this.solveEndgame(ply);
+        if (depth <= 0)
         {
-            current.evaluation = current.layout.getEvaluation();
-            return current;
+            this.horizonNodes++;
+            return this.evaluate();
+        }
+
+        long horizonNodes = this.horizonNodes;
+        long key = this.layout.getCanonicalHash();
+        if (ply > 0)
+        {
+            // A player who can no longer complete a window can at best draw.
+            if (!this.layout.canWin(ILayout.ID.X))
+                beta = Math.min(beta, 0);
+            if (!this.layout.canWin(ILayout.ID.O))
+                alpha = Math.max(alpha, 0);
+            // Nor can anyone win (or lose) faster than on the next move.
+            beta = Math.min(beta, ILayout.MAX_EVALUATION - ply - 1);
+            alpha = Math.max(alpha, ILayout.MIN_EVALUATION + ply + 1);
+            if (alpha >= beta)
+                return alpha;
+
+            int entry = this.probe(key, depth);
+            if (this.tracer != null)
+                this.tracer.probe(key, ply, depth, entry >= 0);
+            if (entry >= 0)
+            {
+                if (this.evaluated.getDepth(entry) != EXHAUSTIVE_DEPTH)
+                    this.horizonNodes++;
+                int value = fromPosition(this.evaluated.getValue(entry), ply);
+                byte bound = this.evaluated.getBound(entry);
+                if (bound == TranspositionTable.EXACT)
+                    return value;
+                if (bound == TranspositionTable.LOWER_BOUND)
+                    alpha = Math.max(alpha, value);
+                else
+                    beta = Math.min(beta, value);
+                if (alpha >= beta)
+                    return value;
+            }
+
+            if (this.futilityPruning && depth <= 2)
+            {
+                int evaluation = this.evaluate();
+                if ((long) evaluation + (depth == 1 ? FUTILITY_MARGIN : RAZOR_MARGIN) <= alpha)
+                {
+                    if (depth == 1)
+                        this.statistics.futilityPrunes++;
+                    else
+                        this.statistics.razorPrunes++;
+                    this.horizonNodes++;
+                    return evaluation;
+                }
+            }
         }
 
-        ArrayList<ILayout> children = current.layout.getChildren();
-        if (current.isRoot)
-            children.sort((c1, c2) -> c2.getEvaluation() - c1.getEvaluation());
+        // When a move wins right away, or the opponent's win must be blocked, only those moves are worth searching.
+        int[] moves = this.generateMoves(ply);
+        int count = this.layout.getForcedMoves(moves);
+        if (count == 0)
+            count = this.layout.getAvailableMoves(moves);
+        if (ply == 0 || (this.lateMoveReductions && depth >= LATE_MOVE_REDUCTION_MIN_DEPTH))
+            this.sortMoves(moves, count, ply, true);
+        if (ply == 0)
+            this.promote(moves, count, this.rootHint);
+        if (this.tracer != null)
+            this.tracer.moves(key, ply, moves, count);
 
-        State bestMove = null;
-        for (ILayout child : children)
+        int alphaOriginal = alpha;
+        int evaluation = Integer.MIN_VALUE;
+        int cutoff = -1;
+        for (int i = 0; i < count; i++)
         {
-            State childState = this.evaluate(child, current, depth);
-            if (childState.evaluation > current.evaluation)
+            this.layout.move(moves[i]);
+            int childEvaluation;
+            if (this.isReducible(i, depth, ply))
+            {
+                this.statistics.lateMoveReductions++;
+                childEvaluation = this.minValue(depth - 2, ply + 1, alpha, alpha + 1);
+                if (childEvaluation > alpha)
+                {
+                    this.statistics.reSearches++;
+                    if (this.tracer != null)
+                        this.tracer.reSearch(key, ply, depth, moves[i], i);
+                    childEvaluation = this.minValue(depth - 1, ply + 1, alpha, beta);
+                }
+            }
+            else
+                childEvaluation = this.minValue(depth - 1, ply + 1, alpha, beta);
+            this.layout.undoMove();
+            if (this.aborted)
+                return evaluation;
+
+            if (childEvaluation > evaluation)
             {
-                current.evaluation = childState.evaluation;
-                bestMove = childState;
+                evaluation = childEvaluation;
+                this.updatePrincipalVariation(ply, moves[i]);
             }
-            current.alpha = Math.max(current.alpha, current.evaluation);
-            if (current.alpha >= current.beta)
+            alpha = Math.max(alpha, evaluation);
+            if (alpha >= beta)
+            {
+                cutoff = i;
                 break;
+            }
         }
-        return bestMove;
+
+        if (this.tracer != null)
+            this.tracer.exit(key, ply, depth, evaluation, this.principalVariation[ply][0], cutoff, count);
+        this.store(key, evaluation, this.horizonNodes == horizonNodes ? EXHAUSTIVE_DEPTH : depth, ply, alphaOriginal, beta);
+        return evaluation;
     }
 
     /**
-     * Logic to be applied on every minimizing state during the search
-     * @param current current position on the search
+     * Logic to be applied on every minimizing position during the search
      * @param depth search depth limit
-     * @return the state that corresponds to the move calculated to be the best from current state
+     * @param ply distance to the root
+     * @param alpha alpha value
+     * @param beta beta value
+     * @return the evaluation of the best move from the current position
      */
-    private State minValue(State current, int depth)
+    private int minValue(int depth, int ply, int alpha, int beta)
     {
-        if (current.isMax)
-            throw new IllegalArgumentException("State isn't minimizing state");
-        if (current.layout.isGameOver() || depth <= 0)
+        this.nodes++;
+        this.principalVariationLength[ply] = 0;
+        if (this.hasDeadline && this.nodes % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - this.deadline > 0)
+            this.aborted = true;
+        if (this.aborted)
+            return 0;
+        if (this.tracer != null)
+            this.tracer.enter(this.layout.getCanonicalHash(), ply, depth, alpha, beta);
+        if (this.layout.isGameOver())
+            return fromPosition(this.layout.getEvaluation(), ply);
+        if (this.isEndgame())
+            return this.solveEndgame(ply);
+        if (depth <= 0)
+        {
+            this.horizonNodes++;
+            return this.evaluate();
+        }
+
+        long horizonNodes = this.horizonNodes;
+        long key = this.layout.getCanonicalHash();
+        if (ply > 0)
         {
-            current.evaluation = current.layout.getEvaluation();
-            return current;
+            // A player who can no longer complete a window can at best draw.
+            if (!this.layout.canWin(ILayout.ID.X))
+                beta = Math.min(beta, 0);
+            if (!this.layout.canWin(ILayout.ID.O))
+                alpha = Math.max(alpha, 0);
+            // Nor can anyone win (or lose) faster than on the next move.
+            beta = Math.min(beta, ILayout.MAX_EVALUATION - ply - 1);
+            alpha = Math.max(alpha, ILayout.MIN_EVALUATION + ply + 1);
+            if (alpha >= beta)
+                return alpha;
+
+            int entry = this.probe(key, depth);
+            if (this.tracer != null)
+                this.tracer.probe(key, ply, depth, entry >= 0);
+            if (entry >= 0)
+            {
+                if (this.evaluated.getDepth(entry) != EXHAUSTIVE_DEPTH)
+                    this.horizonNodes++;
+                int value = fromPosition(this.evaluated.getValue(entry), ply);
+                byte bound = this.evaluated.getBound(entry);
+                if (bound == TranspositionTable.EXACT)
+                    return value;
+                if (bound == TranspositionTable.LOWER_BOUND)
+                    alpha = Math.max(alpha, value);
+                else
+                    beta = Math.min(beta, value);
+                if (beta <= alpha)
+                    return value;
+            }
+
+            if (this.futilityPruning && depth <= 2)
+            {
+                int evaluation = this.evaluate();
+                if ((long) evaluation - (depth == 1 ? FUTILITY_MARGIN : RAZOR_MARGIN) >= beta)
+                {
+                    if (depth == 1)
+                        this.statistics.futilityPrunes++;
+                    else
+                        this.statistics.razorPrunes++;
+                    this.horizonNodes++;
+                    return evaluation;
+                }
+            }
         }
 
-        ArrayList<ILayout> children = current.layout.getChildren();
-        if (current.isRoot)
-            children.sort(Comparator.comparingInt(ILayout::getEvaluation));
+        // When a move wins right away, or the opponent's win must be blocked, only those moves are worth searching.
+        int[] moves = this.generateMoves(ply);
+        int count = this.layout.getForcedMoves(moves);
+        if (count == 0)
+            count = this.layout.getAvailableMoves(moves);
+        if (ply == 0 || (this.lateMoveReductions && depth >= LATE_MOVE_REDUCTION_MIN_DEPTH))
+            this.sortMoves(moves, count, ply, false);
+        if (ply == 0)
+            this.promote(moves, count, this.rootHint);
+        if (this.tracer != null)
+            this.tracer.moves(key, ply, moves, count);
 
-        State bestMove = null;
-        for (ILayout child : children)
+        int betaOriginal = beta;
+        int evaluation = Integer.MAX_VALUE;
+        int cutoff = -1;
+        for (int i = 0; i < count; i++)
         {
-            State childState = this.evaluate(child, current, depth);
-            if (childState.evaluation < current.evaluation)
+            this.layout.move(moves[i]);
+            int childEvaluation;
+            if (this.isReducible(i, depth, ply))
             {
-                current.evaluation = childState.evaluation;
-                bestMove = childState;
+                this.statistics.lateMoveReductions++;
+                childEvaluation = this.maxValue(depth - 2, ply + 1, beta - 1, beta);
+                if (childEvaluation < beta)
+                {
+                    this.statistics.reSearches++;
+                    if (this.tracer != null)
+                        this.tracer.reSearch(key, ply, depth, moves[i], i);
+                    childEvaluation = this.maxValue(depth - 1, ply + 1, alpha, beta);
+                }
             }
-            current.beta = Math.min(current.beta, current.evaluation);
-            if (current.beta <= current.alpha)
+            else
+                childEvaluation = this.maxValue(depth - 1, ply + 1, alpha, beta);
+            this.layout.undoMove();
+            if (this.aborted)
+                return evaluation;
+
+            if (childEvaluation < evaluation)
+            {
+                evaluation = childEvaluation;
+                this.updatePrincipalVariation(ply, moves[i]);
+            }
+            beta = Math.min(beta, evaluation);
+            if (beta <= alpha)
+            {
+                cutoff = i;
                 break;
+            }
         }
-        return bestMove;
+
+        if (this.tracer != null)
+            this.tracer.exit(key, ply, depth, evaluation, this.principalVariation[ply][0], cutoff, count);
+        this.store(key, evaluation, this.horizonNodes == horizonNodes ? EXHAUSTIVE_DEPTH : depth, ply, alpha, betaOriginal);
+        return evaluation;
     }
 
     /**
-     * Evaluate a given move from current position
-     * @param child possible move to play
-     * @param current current position
-     * @param depth search depth limit
-     * @return state of given possible move
+     * Evaluates the current position: with the layout if the game is over, otherwise with the evaluator,
+     * going through the evaluation cache if there is one
+     * @return evaluation of the position
      */
-    private State evaluate(ILayout child, State current, int depth)
+    private int evaluate()
     {
-        State childState;
-        if (this.evaluated.containsKey(child))
-            childState = this.evaluated.get(child);
-        else
+        if (this.layout.isGameOver())
+            return this.layout.getEvaluation();
+        this.statistics.evaluations++;
+        if (this.evaluationCache == null)
+            return this.evaluator.evaluate(this.layout);
+
+        long key = this.layout.getCanonicalHash();
+        long data = this.evaluationCache.probe(key);
+        if (data != 0)
         {
-            childState = new State(child, false, current.alpha, current.beta);
-            if (childState.isMax)
-                this.maxValue(childState, depth - 1);
-            else
-                this.minValue(childState, depth - 1);
-            this.evaluated.put(child, childState);
+            this.statistics.evaluationCacheHits++;
+            return EvaluationCache.getEvaluation(data);
         }
-        return childState;
+        int evaluation = this.evaluator.evaluate(this.layout);
+        this.evaluationCache.store(key, evaluation);
+        return evaluation;
     }
 
-    // TODO: 29/11/23 Improve iterative deepening approach for competition
+    /**
+     * @return true if the current position is to be handed to the endgame solver
+     */
+    private boolean isEndgame()
+    {
+        return this.endgameEmptyCells > 0 && this.layout instanceof Board &&
+                this.layout.getAvailableMoveCount() <= this.endgameEmptyCells;
+    }
 
     /**
-     * Iterative deepening approach of miniMax
-     * @param board current position
+     * Solves the current position exactly with the endgame solver
+     * @param ply distance to the root
+     * @return value of the position, counting the plies the solver takes to win (or lose) from the root, 0 for a draw
+     */
+    private int solveEndgame(int ply)
+    {
+        long nodes = this.endgameSolver.getNodes();
+        int score = this.endgameSolver.solve((Board) this.layout);
+        this.statistics.endgameSolves++;
+        this.statistics.endgameNodes += this.endgameSolver.getNodes() - nodes;
+
+        this.principalVariation[ply][0] = this.endgameSolver.getBestMove();
+        this.principalVariationLength[ply] = 1;
+        if (score == 0)
+            return 0;
+        int value = (score > 0) == (this.layout.getTurn() == ILayout.ID.X) ? ILayout.MAX_EVALUATION : ILayout.MIN_EVALUATION;
+        return fromPosition(value, ply + EndgameSolver.getDistance(score));
+    }
+
+    /**
+     * Turns a value counted from a position into one counted from the root: a win that is some plies away from a
+     * position ply plies deep is ply plies further from the root, and is worth that much less
+     * @param value value of the position, MAX_EVALUATION (or MIN_EVALUATION) for a win (or loss) on it
+     * @param ply distance to the root
+     * @return value of the position as seen from the root
+     */
+    private static int fromPosition(int value, int ply)
+    {
+        if (isWin(ILayout.ID.X, value))
+            return value - ply;
+        if (isWin(ILayout.ID.O, value))
+            return value + ply;
+        return value;
+    }
+
+    /**
+     * Inverse of fromPosition, for values leaving the search for the tables
+     * @param value value of the position as seen from the root
+     * @param ply distance to the root
+     * @return value of the position counted from the position itself
+     */
+    private static int toPosition(int value, int ply)
+    {
+        if (isWin(ILayout.ID.X, value))
+            return value + ply;
+        if (isWin(ILayout.ID.O, value))
+            return value - ply;
+        return value;
+    }
+
+    /**
+     * Checks if a search value is a proven win: wins are MAX_EVALUATION (or MIN_EVALUATION, for O) less the number
+     * of plies to the end of the game, which is under MAX_WIN_DISTANCE
+     * @param player X or O
+     * @param value search value, from X's point of view
+     * @return true if the player wins
+     */
+    static boolean isWin(ILayout.ID player, int value)
+    {
+        if (player == ILayout.ID.X)
+            return value >= ILayout.MAX_EVALUATION - ILayout.MAX_WIN_DISTANCE;
+        return value <= ILayout.MIN_EVALUATION + ILayout.MAX_WIN_DISTANCE;
+    }
+
+    /**
+     * Checks if a move is to be searched at reduced depth
+     * @param order position of the move in the (sorted) move list
      * @param depth search depth limit
-     * @return the layout that corresponds to the move that miniMax calculated to be the best
+     * @param ply distance to the root
+     * @return true if late move reductions apply to the move
      */
-    public ILayout IterativeDeepeningMiniMax(ILayout board, int depth)
+    private boolean isReducible(int order, int depth, int ply)
     {
-        if (depth < 1)
-            throw new IllegalArgumentException("Invalid depth");
+        return this.lateMoveReductions && ply > 0 && depth >= LATE_MOVE_REDUCTION_MIN_DEPTH &&
+                order >= LATE_MOVE_REDUCTION_FULL_DEPTH_MOVES && !this.layout.isGameOver();
+    }
 
-        State bestMove = null;
-        for (int iDepth = 1; iDepth <= depth; iDepth++)
+    /**
+     * Saves the result of a search on the transposition table
+     * @param key position hash
+     * @param evaluation value found by the search
+     * @param depth search depth limit, or EXHAUSTIVE_DEPTH if the search reached the end of every line
+     * @param ply distance to the root, as tables hold wins and losses counted from the position itself
+     * @param alpha alpha value the position was searched with
+     * @param beta beta value the position was searched with
+     */
+    private void store(long key, int evaluation, int depth, int ply, int alpha, int beta)
+    {
+        byte bound;
+        if (evaluation <= alpha)
+            bound = TranspositionTable.UPPER_BOUND;
+        else if (evaluation >= beta)
+            bound = TranspositionTable.LOWER_BOUND;
+        else
+            bound = TranspositionTable.EXACT;
+        evaluation = toPosition(evaluation, ply);
+        this.evaluated.store(key, evaluation, depth, bound);
+        if (this.persistentCache != null &&
+                (depth == EXHAUSTIVE_DEPTH || (depth >= PERSISTENT_CACHE_MIN_DEPTH && this.isPlain())))
+            this.persistentCache.store(key, evaluation, depth, bound);
+    }
+
+    /**
+     * @return true if depth limited results of this search are the ones any other plain search finds, so that they
+     * may be shared through the persistent cache
+     */
+    private boolean isPlain()
+    {
+        return !this.lateMoveReductions && !this.futilityPruning && this.evaluator == Evaluator.LAYOUT;
+    }
+
+    /**
+     * Looks a position up on the transposition table, falling back to the persistent cache
+     * @param key position hash
+     * @param depth search depth limit
+     * @return transposition table entry searched at least as deep as the depth limit, or -1 if there is none
+     */
+    private int probe(long key, int depth)
+    {
+        int entry = this.evaluated.probe(key);
+        if (entry >= 0 && this.evaluated.getDepth(entry) >= depth)
+            return entry;
+        if (this.persistentCache == null)
+            return -1;
+
+        long data = this.persistentCache.probe(key);
+        if (data == 0)
+            return -1;
+        int cachedDepth = PersistentCache.getDepth(data);
+        if (cachedDepth == PersistentCache.EXHAUSTIVE_DEPTH)
+            cachedDepth = EXHAUSTIVE_DEPTH;
+        if (cachedDepth < depth || (cachedDepth != EXHAUSTIVE_DEPTH && !this.isPlain()))
+            return -1;
+
+        this.evaluated.store(key, PersistentCache.getValue(data), cachedDepth, PersistentCache.getBound(data));
+        return this.evaluated.probe(key);
+    }
+
+    /**
+     * Moves a move to the front of a move list, keeping the order of the others
+     * @param moves move list
+     * @param count number of moves
+     * @param move move to search first, ignored if it isn't in the list
+     */
+    private void promote(int[] moves, int count, int move)
+    {
+        for (int i = 0; i < count; i++)
+            if (moves[i] == move)
+            {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+    }
+
+    /**
+     * Makes the given move the head of the principal variation of a ply, followed by the variation of the next ply
+     * @param ply distance to the root
+     * @param move best move found so far
+     */
+    private void updatePrincipalVariation(int ply, int move)
+    {
+        int length = this.principalVariationLength[ply + 1];
+        this.principalVariation[ply][0] = move;
+        System.arraycopy(this.principalVariation[ply + 1], 0, this.principalVariation[ply], 1, length);
+        this.principalVariationLength[ply] = length + 1;
+    }
+
+    /**
+     * Sorts moves by the evaluation of the position they lead to, best first
+     * @param moves moves to sort
+     * @param count number of moves
+     * @param ply distance to the root
+     * @param isMax true if the player to move is maximizing
+     */
+    private void sortMoves(int[] moves, int count, int ply, boolean isMax)
+    {
+        int[] scores = this.scores[ply];
+        for (int i = 0; i < count; i++)
         {
-            State previousBestMove = bestMove;
-            State boardState = new State(board, true, ILayout.MIN_EVALUATION, ILayout.MAX_EVALUATION);
-            bestMove = this.miniMax(boardState, iDepth);
+            this.layout.move(moves[i]);
+            scores[i] = isMax ? this.evaluate() : -this.evaluate();
+            this.layout.undoMove();
+        }
 
-            if (this.isGuaranteedVictory(boardState))
-                break;
-            if (this.isGuaranteedLost(boardState))
+        for (int i = 1; i < count; i++)
+        {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            for (; j >= 0 && scores[j] < score; j--)
             {
-                bestMove = previousBestMove != null ? previousBestMove : bestMove;
-                break;
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
             }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * @param ply distance to the root
+     * @return move buffer for the given ply, large enough to hold every available move
+     */
+    private int[] generateMoves(int ply)
+    {
+        int count = this.layout.getAvailableMoveCount();
+        if (this.moves[ply] == null || this.moves[ply].length < count)
+        {
+            this.moves[ply] = new int[count];
+            this.scores[ply] = new int[count];
         }
-        return bestMove.layout;
+        return this.moves[ply];
     }
 
     /**
-     * Checks if for a given state the game will end in victory for the player at turn no matter what
-     * @param s State
-     * @return true if it's a guaranteed win from current state, false otherwise
+     * Makes sure there are buffers for the given number of plies
+     * @param plies number of plies
      */
-    private boolean isGuaranteedVictory(State s)
+    private void ensureCapacity(int plies)
     {
-        return (s.isMax && s.evaluation == ILayout.MAX_EVALUATION) ||
-                (!s.isMax && s.evaluation == ILayout.MIN_EVALUATION);
+        if (this.moves.length >= plies)
+            return;
+
+        int[][] moves = new int[plies][];
+        int[][] scores = new int[plies][];
+        System.arraycopy(this.moves, 0, moves, 0, this.moves.length);
+        System.arraycopy(this.scores, 0, scores, 0, this.scores.length);
+        this.moves = moves;
+        this.scores = scores;
+
+        // One extra ply so the nodes at the horizon have a (always empty) variation too.
+        this.principalVariation = new int[plies + 1][plies + 1];
+        this.principalVariationLength = new int[plies + 1];
     }
 
+    // TODO: 29/11/23 Improve iterative deepening approach for competition
+
     /**
-     * Checks if for a given state the game will end in a defeat for the player at turn no matter what
-     * @param s State
-     * @return true if it's a guaranteed lost from current state, false otherwise
+     * Iterative deepening approach of miniMax
+     * @param board current position
+     * @param depth search depth limit
+     * @return the move that miniMax calculated to be the best, with its score and principal variation
      */
-    private boolean isGuaranteedLost(State s)
+    public SearchResult IterativeDeepeningMiniMax(ILayout board, int depth)
     {
-        return (s.isMax && s.evaluation == ILayout.MIN_EVALUATION) ||
-                (!s.isMax && s.evaluation == ILayout.MAX_EVALUATION);
+        if (depth < 1)
+            throw new IllegalArgumentException("Invalid depth");
+
+        this.hasDeadline = false;
+        return this.iterativeDeepening(board, depth);
     }
 
     /**
-     * State class to wrap information useful for the search
-     * @author Alexandre Rodrigues
-     * @version 1.0 29/11/2023
+     * Iterative deepening approach of miniMax that stops deepening once a time budget runs out
+     * @param board current position
+     * @param depth search depth limit
+     * @param timeLimit time budget in milliseconds
+     * @return the move found by the deepest search completed within the budget
      */
-    private static class State
+    public SearchResult IterativeDeepeningMiniMax(ILayout board, int depth, long timeLimit)
     {
-        private final ILayout layout;
-        private final boolean isRoot;
-        private final boolean isMax;
-        private int evaluation;
-        private int alpha;
-        private int beta;
+        if (depth < 1)
+            throw new IllegalArgumentException("Invalid depth");
+
+        this.hasDeadline = true;
+        this.deadline = System.nanoTime() + timeLimit * 1000000;
+        try
+        {
+            SearchResult bestMove = this.iterativeDeepening(board, depth);
+            if (bestMove != null)
+                return bestMove;
 
-        /**
-         * Creates new state
-         * @param layout Layout
-         * @param alpha alpha value
-         * @param beta beta value
-         */
-        private State(ILayout layout, boolean isRoot, int alpha, int beta)
+            // Not even the first iteration finished: play the first (forced, if any) move on offer.
+            int[] moves = new int[Math.max(board.getAvailableMoveCount(), 1)];
+            int count = board.getForcedMoves(moves);
+            if (count == 0)
+                count = board.getAvailableMoves(moves);
+            int move = count > 0 ? moves[0] : -1;
+            return new SearchResult(move, board.getEvaluation(), false, count > 0 ? new int[] {move} : new int[0], 0, this.nodes);
+        }
+        finally
+        {
+            this.hasDeadline = false;
+        }
+    }
+
+    /**
+     * Searches at increasing depths, starting each iteration from the best move of the previous one
+     * @param board current position
+     * @param depth search depth limit
+     * @return the move found by the deepest completed search, or null if none completed in time
+     */
+    private SearchResult iterativeDeepening(ILayout board, int depth)
+    {
+        this.evaluated.clear();
+        this.statistics.reset();
+        this.rootHint = -1;
+        long start = System.nanoTime();
+        SearchResult bestMove = null;
+        for (int iDepth = 1; iDepth <= depth; iDepth++)
         {
-            this.layout = layout;
-            this.isRoot = isRoot;
-            this.isMax = layout.getTurn() == ILayout.ID.X;
-            this.evaluation = this.isMax ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-            this.alpha = alpha;
-            this.beta = beta;
+            SearchResult previousBestMove = bestMove;
+            bestMove = this.miniMax(board, iDepth, ILayout.MIN_EVALUATION, ILayout.MAX_EVALUATION);
+            if (bestMove == null)
+                return previousBestMove;
+            this.statistics.completeIteration(System.nanoTime() - start);
+            this.rootHint = bestMove.getBestMove();
+
+            // A lost position's best move is the one that holds out longest, which searching deeper won't change.
+            if (bestMove.isProven() || this.isGuaranteedLost(board.getTurn(), bestMove.getScore()))
+                break;
         }
+        return bestMove;
+    }
+
+    /**
+     * Checks if for a given evaluation the game will end in a defeat for the player at turn no matter what
+     * @param turn player at turn
+     * @param evaluation evaluation of the position
+     * @return true if it's a guaranteed lost from current state, false otherwise
+     */
+    private boolean isGuaranteedLost(ILayout.ID turn, int evaluation)
+    {
+        return isWin(turn == ILayout.ID.X ? ILayout.ID.O : ILayout.ID.X, evaluation);
     }
 }
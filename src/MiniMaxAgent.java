@@ -5,6 +5,10 @@
  */
 public class MiniMaxAgent
 {
+    private static final Tablebase TABLEBASE = Tablebase.loadDefault();
+    private static final PersistentCache CACHE = PersistentCache.openDefault();
+    private static final int ENDGAME_EMPTY_CELLS = 12;
+
     /**
      * Plays a move accordingly to miniMax calculations, using the standard minimax approach
      * @param board the board to play on
@@ -12,7 +16,13 @@ public class MiniMaxAgent
      */
     public static int play(ILayout board)
     {
-        return board.getChildrenActions().get(new MiniMax().miniMax(board, ILayout.ROWS * ILayout.COLUMNS));
+        int move = playForced(board);
+        if (move >= 0)
+            return move;
+        move = playTablebase(board);
+        if (move >= 0)
+            return move;
+        return newMiniMax().miniMax(board, ILayout.ROWS * ILayout.COLUMNS).getBestMove();
     }
 
     /**
@@ -23,6 +33,47 @@ public class MiniMaxAgent
      */
     public static int play(ILayout board, int searchDepth)
     {
-        return board.getChildrenActions().get(new MiniMax().IterativeDeepeningMiniMax(board, searchDepth));
+        int move = playForced(board);
+        if (move >= 0)
+            return move;
+        move = playTablebase(board);
+        if (move >= 0)
+            return move;
+        return newMiniMax().IterativeDeepeningMiniMax(board, searchDepth).getBestMove();
+    }
+
+    /**
+     * @return a new search, backed by the persistent cache if one was configured, and by the endgame solver
+     * if the board is small enough for it
+     */
+    private static MiniMax newMiniMax()
+    {
+        MiniMax miniMax = new MiniMax();
+        miniMax.setPersistentCache(CACHE);
+        if (ILayout.ROWS * ILayout.COLUMNS <= 64)
+            miniMax.setEndgameSolver(ENDGAME_EMPTY_CELLS);
+        return miniMax;
+    }
+
+    /**
+     * Plays the only sensible move when there is one: a move that wins right away, or the only move that
+     * stops the opponent from winning
+     * @param board the board to play on
+     * @return move to play, or -1 if the move isn't forced
+     */
+    private static int playForced(ILayout board)
+    {
+        int[] moves = new int[board.getAvailableMoveCount()];
+        return board.getForcedMoves(moves) == 1 ? moves[0] : -1;
+    }
+
+    /**
+     * Looks the move up on the tablebase of the configured board, if there is one
+     * @param board the board to play on
+     * @return move to play, or -1 if the tablebase can't tell
+     */
+    private static int playTablebase(ILayout board)
+    {
+        return TABLEBASE != null && board instanceof Board ? TABLEBASE.getBestMove(board) : -1;
     }
 }
@@ -0,0 +1,147 @@
+/**
+ * Precomputed scores for every possible content of a line window of WIN_CONDITION_LENGTH cells plus the
+ * cell on each side of it (its flanks). A window and its flanks are encoded in base 3, the left flank being
+ * the least significant digit: 0 for a blank cell, 1 for X and 2 for O (or anything but 0 for a flank
+ * that is off the board).
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+class PatternTable
+{
+    private static final int WIN_THREAT = 100000;
+
+    private final int length;
+    private final int[] scoresXToMove;
+    private final int[] scoresOToMove;
+    private final byte[] threats;
+
+    /**
+     * Generates the table for windows of the given length
+     * @param length number of stones in a row needed to win
+     */
+    PatternTable(int length)
+    {
+        this.length = length;
+        int size = 1;
+        for (int i = 0; i < length + 2; i++)
+            size *= 3;
+        this.scoresXToMove = new int[size];
+        this.scoresOToMove = new int[size];
+        this.threats = new byte[size];
+
+        for (int code = 0; code < size; code++)
+        {
+            int leftFlank = code % 3;
+            int rightFlank = code / this.weight(length + 1);
+            int x = 0;
+            int o = 0;
+            int blank = 0;
+            for (int i = 1; i <= length; i++)
+            {
+                int cell = code / this.weight(i) % 3;
+                if (cell == ILayout.ID.X.ordinal())
+                    x++;
+                else if (cell == ILayout.ID.O.ordinal())
+                    o++;
+                else
+                    blank = i;
+            }
+            if (x == length - 1 && o == 0)
+                this.threats[code] = (byte) (blank * 3 + ILayout.ID.X.ordinal());
+            else if (o == length - 1 && x == 0)
+                this.threats[code] = (byte) (blank * 3 + ILayout.ID.O.ordinal());
+
+            // Windows holding both players' stones can't be won by anyone, and empty ones favour neither player.
+            if ((x > 0) == (o > 0))
+                continue;
+
+            int openFlanks = (leftFlank == 0 ? 1 : 0) + (rightFlank == 0 ? 1 : 0);
+            int toMove = this.getScore(Math.max(x, o), openFlanks, true);
+            int waiting = this.getScore(Math.max(x, o), openFlanks, false);
+            this.scoresXToMove[code] = x > 0 ? toMove : -waiting;
+            this.scoresOToMove[code] = x > 0 ? waiting : -toMove;
+        }
+    }
+
+    /**
+     * Scores a window holding only one player's stones
+     * @param stones number of stones in the window
+     * @param openFlanks number of blank flanks (0, 1 or 2)
+     * @param toMove true if the window's owner is the player at turn
+     * @return the window's value for its owner
+     */
+    private int getScore(int stones, int openFlanks, boolean toMove)
+    {
+        int missing = this.length - stones;
+        if (missing <= 0)
+            return 0;
+        // A window one stone short of a win is won next move by its owner, or must be blocked by the other player.
+        if (missing == 1)
+            return toMove ? 10 * WIN_THREAT : WIN_THREAT;
+
+        int score = WIN_THREAT;
+        for (int i = 0; i < missing && score > 1; i++)
+            score /= 10;
+        score *= openFlanks + 1;
+        // An open window two stones short becomes, if its owner moves first, a threat with both ends open.
+        if (missing == 2 && openFlanks == 2 && toMove)
+            return 10 * score;
+        return toMove ? 2 * score : score;
+    }
+
+    /**
+     * @param digit position of a cell in the pattern (0 is the left flank)
+     * @return base 3 weight of the cell in the pattern code
+     */
+    int weight(int digit)
+    {
+        int weight = 1;
+        for (int i = 0; i < digit; i++)
+            weight *= 3;
+        return weight;
+    }
+
+    /**
+     * @param code pattern code of a window and its flanks
+     * @return position of the blank cell in the pattern (1 to length) if the window is one stone short of a win, 0 otherwise
+     */
+    int getThreat(int code)
+    {
+        return this.threats[code] / 3;
+    }
+
+    /**
+     * @param code pattern code of a window one stone short of a win
+     * @return ordinal of the player the window belongs to
+     */
+    int getThreatOwner(int code)
+    {
+        return this.threats[code] % 3;
+    }
+
+    /**
+     * @return number of stones in a row needed to win
+     */
+    int getLength()
+    {
+        return this.length;
+    }
+
+    /**
+     * @param code pattern code of a window and its flanks
+     * @return the window's value, from X's point of view, when X is at turn
+     */
+    int getScoreXToMove(int code)
+    {
+        return this.scoresXToMove[code];
+    }
+
+    /**
+     * @param code pattern code of a window and its flanks
+     * @return the window's value, from X's point of view, when O is at turn
+     */
+    int getScoreOToMove(int code)
+    {
+        return this.scoresOToMove[code];
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Search results cache living in a memory mapped file, so that it survives restarts and can be shared by
+ * several processes on the same host. Each entry is two longs, the packed result and the position hash xor
+ * the packed result: an entry torn by a crash or by two processes writing at once fails that check and
+ * reads as a miss, so no locking is needed past the creation of the file.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class PersistentCache implements Closeable
+{
+    static final int EXHAUSTIVE_DEPTH = 0xFFFF;
+
+    private static final long MAGIC = 0x4D4E4B4341434845L;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int ENTRY_SIZE = 16;
+    private static final int MAX_BITS = 26;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int mask;
+
+    /**
+     * Opens a cache file, creating it if it doesn't exist yet
+     * @param file cache file
+     * @param bits base 2 logarithm of the number of entries, used only when the file is created
+     * @throws IOException if the file can't be mapped or holds a cache for another board
+     */
+    public PersistentCache(File file, int bits) throws IOException
+    {
+        if (bits < 1 || bits > MAX_BITS)
+            throw new IllegalArgumentException("Invalid cache size");
+
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            FileLock lock = this.channel.lock();
+            try
+            {
+                // A file without the magic number was never finished, whether it is new or its creator crashed.
+                boolean isInitialised = this.readMagic() != 0;
+                if (isInitialised)
+                    bits = this.readHeader(file);
+                else
+                    this.channel.truncate(0);
+
+                long size = HEADER_SIZE + ((long) ENTRY_SIZE << bits);
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                this.mask = (1 << bits) - 1;
+                if (!isInitialised)
+                    this.writeHeader(bits);
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the magic number at the start of the file, or 0 if the file is too short to hold a header
+     * @throws IOException if the file can't be read
+     */
+    private long readMagic() throws IOException
+    {
+        if (this.channel.size() < HEADER_SIZE)
+            return 0;
+
+        ByteBuffer magic = ByteBuffer.allocate(Long.BYTES);
+        while (magic.hasRemaining() && this.channel.read(magic, magic.position()) >= 0)
+            ;
+        return magic.hasRemaining() ? 0 : magic.getLong(0);
+    }
+
+    /**
+     * Reads and validates the header of an existing cache file
+     * @param file cache file
+     * @return base 2 logarithm of the number of entries
+     * @throws IOException if the file isn't a cache for the configured board
+     */
+    private int readHeader(File file) throws IOException
+    {
+        MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC)
+            throw new IOException("Not a search cache: " + file);
+        if (header.getInt(8) != VERSION || header.getInt(12) != ILayout.ROWS || header.getInt(16) != ILayout.COLUMNS ||
+                header.getInt(20) != ILayout.WIN_CONDITION_LENGTH)
+            throw new IOException("Search cache was created for another board or version: " + file);
+
+        int bits = header.getInt(24);
+        if (bits < 1 || bits > MAX_BITS || this.channel.size() < HEADER_SIZE + ((long) ENTRY_SIZE << bits))
+            throw new IOException("Corrupted search cache: " + file);
+        return bits;
+    }
+
+    /**
+     * Writes the header of a new cache file, the magic number last so a crash leaves the file recognisably unfinished
+     * @param bits base 2 logarithm of the number of entries
+     */
+    private void writeHeader(int bits)
+    {
+        this.buffer.putInt(8, VERSION);
+        this.buffer.putInt(12, ILayout.ROWS);
+        this.buffer.putInt(16, ILayout.COLUMNS);
+        this.buffer.putInt(20, ILayout.WIN_CONDITION_LENGTH);
+        this.buffer.putInt(24, bits);
+        this.buffer.force();
+        this.buffer.putLong(0, MAGIC);
+        this.buffer.force();
+    }
+
+    /**
+     * Looks up a position
+     * @param key position hash
+     * @return the packed result of the position, or 0 if it isn't stored
+     */
+    long probe(long key)
+    {
+        int offset = this.offset(key);
+        long data = this.buffer.getLong(offset + 8);
+        long check = this.buffer.getLong(offset);
+        return data != 0 && (check ^ data) == key ? data : 0;
+    }
+
+    /**
+     * Stores a position, unless its entry holds a deeper result for another position
+     * @param key position hash
+     * @param value search value of the position
+     * @param depth remaining depth the value was searched with, or EXHAUSTIVE_DEPTH
+     * @param bound whether the value is exact or a lower or upper bound (TranspositionTable constants)
+     */
+    void store(long key, int value, int depth, byte bound)
+    {
+        int offset = this.offset(key);
+        long current = this.buffer.getLong(offset + 8);
+        if (current != 0 && (this.buffer.getLong(offset) ^ current) != key && getDepth(current) > depth)
+            return;
+
+        long data = ((long) value << 32) | ((long) Math.min(depth, EXHAUSTIVE_DEPTH) << 16) | (bound & 0xFF);
+        this.buffer.putLong(offset + 8, data);
+        this.buffer.putLong(offset, key ^ data);
+    }
+
+    /**
+     * @param data packed result
+     * @return search value of the position
+     */
+    static int getValue(long data)
+    {
+        return (int) (data >> 32);
+    }
+
+    /**
+     * @param data packed result
+     * @return remaining depth the value was searched with, or EXHAUSTIVE_DEPTH
+     */
+    static int getDepth(long data)
+    {
+        return (int) (data >>> 16) & 0xFFFF;
+    }
+
+    /**
+     * @param data packed result
+     * @return whether the value is exact or a lower or upper bound (TranspositionTable constants)
+     */
+    static byte getBound(long data)
+    {
+        return (byte) data;
+    }
+
+    /**
+     * @param key position hash
+     * @return offset of the entry the key maps to
+     */
+    private int offset(long key)
+    {
+        return HEADER_SIZE + (((int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & this.mask) * ENTRY_SIZE);
+    }
+
+    /**
+     * Writes the cache to disk
+     */
+    public void flush()
+    {
+        this.buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.flush();
+        this.channel.close();
+    }
+
+    /**
+     * Opens the cache file named by the mnk.cache system property, if it is set
+     * @return the cache, or null if there is no usable cache
+     */
+    public static PersistentCache openDefault()
+    {
+        String path = System.getProperty("mnk.cache");
+        if (path == null)
+            return null;
+
+        try
+        {
+            return new PersistentCache(new File(path), Integer.getInteger("mnk.cache.bits", 22));
+        }
+        catch (IOException e)
+        {
+            System.err.println("Ignoring search cache: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+/**
+ * Outcome of a search: the move to play along with how it was found
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SearchResult
+{
+    private final int bestMove;
+    private final int score;
+    private final boolean proven;
+    private final int[] principalVariation;
+    private final int depth;
+    private final long nodes;
+
+    /**
+     * Creates a new search result
+     * @param bestMove index of the best move, or -1 if the game is already over
+     * @param score evaluation of the position, from X's point of view, with wins worth less the further away they are
+     * @param proven true if the score is the game theoretical value of the position
+     * @param principalVariation sequence of best moves starting with the best move
+     * @param depth search depth reached
+     * @param nodes number of positions visited
+     */
+    SearchResult(int bestMove, int score, boolean proven, int[] principalVariation, int depth, long nodes)
+    {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.proven = proven;
+        this.principalVariation = principalVariation;
+        this.depth = depth;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return index of the best move, or -1 if the game is already over
+     */
+    public int getBestMove()
+    {
+        return this.bestMove;
+    }
+
+    /**
+     * @return evaluation of the position, from X's point of view
+     */
+    public int getScore()
+    {
+        return this.score;
+    }
+
+    /**
+     * @return true if the score is the game theoretical value of the position rather than a heuristic estimate
+     */
+    public boolean isProven()
+    {
+        return this.proven;
+    }
+
+    /**
+     * @return number of plies to the end of the game if the score is a proven win for either player, -1 otherwise
+     */
+    public int getDistance()
+    {
+        if (MiniMax.isWin(ILayout.ID.X, this.score))
+            return ILayout.MAX_EVALUATION - this.score;
+        if (MiniMax.isWin(ILayout.ID.O, this.score))
+            return this.score - ILayout.MIN_EVALUATION;
+        return -1;
+    }
+
+    /**
+     * @return sequence of best moves for both players, starting with the best move
+     */
+    public int[] getPrincipalVariation()
+    {
+        return this.principalVariation.clone();
+    }
+
+    /**
+     * @return search depth reached
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * @return number of positions visited
+     */
+    public long getNodes()
+    {
+        return this.nodes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "move " + this.bestMove + ", score " + this.score + (this.proven ? " (proven)" : "") +
+                ", depth " + this.depth + ", nodes " + this.nodes + ", pv " + Arrays.toString(this.principalVariation);
+    }
+}
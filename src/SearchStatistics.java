@@ -0,0 +1,140 @@
+import java.util.Arrays;
+
+/**
+ * Counters of how often the selective search features of MiniMax fired during a search, and how long iterative
+ * deepening took to complete each depth
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SearchStatistics
+{
+    long lateMoveReductions;
+    long reSearches;
+    long futilityPrunes;
+    long razorPrunes;
+    long endgameSolves;
+    long endgameNodes;
+    long evaluations;
+    long evaluationCacheHits;
+    private long[] timeToDepth = new long[64];
+    private int iterations;
+
+    /**
+     * Sets every counter back to zero
+     */
+    void reset()
+    {
+        this.lateMoveReductions = 0;
+        this.reSearches = 0;
+        this.futilityPrunes = 0;
+        this.razorPrunes = 0;
+        this.endgameSolves = 0;
+        this.endgameNodes = 0;
+        this.evaluations = 0;
+        this.evaluationCacheHits = 0;
+        this.iterations = 0;
+    }
+
+    /**
+     * Records that iterative deepening completed one more depth
+     * @param nanos nanoseconds since the search started
+     */
+    void completeIteration(long nanos)
+    {
+        if (this.iterations == this.timeToDepth.length)
+            this.timeToDepth = Arrays.copyOf(this.timeToDepth, 2 * this.iterations);
+        this.timeToDepth[this.iterations++] = nanos;
+    }
+
+    /**
+     * @return number of moves searched at reduced depth
+     */
+    public long getLateMoveReductions()
+    {
+        return this.lateMoveReductions;
+    }
+
+    /**
+     * @return number of reduced moves that had to be searched again at full depth
+     */
+    public long getReSearches()
+    {
+        return this.reSearches;
+    }
+
+    /**
+     * @return number of positions one move from the horizon that were pruned
+     */
+    public long getFutilityPrunes()
+    {
+        return this.futilityPrunes;
+    }
+
+    /**
+     * @return number of positions two moves from the horizon that were pruned
+     */
+    public long getRazorPrunes()
+    {
+        return this.razorPrunes;
+    }
+
+    /**
+     * @return number of positions handed to the endgame solver
+     */
+    public long getEndgameSolves()
+    {
+        return this.endgameSolves;
+    }
+
+    /**
+     * @return number of positions the endgame solver searched
+     */
+    public long getEndgameNodes()
+    {
+        return this.endgameNodes;
+    }
+
+    /**
+     * @return number of positions still in play that were evaluated
+     */
+    public long getEvaluations()
+    {
+        return this.evaluations;
+    }
+
+    /**
+     * @return number of evaluations found on the evaluation cache
+     */
+    public long getEvaluationCacheHits()
+    {
+        return this.evaluationCacheHits;
+    }
+
+    /**
+     * @return number of depths iterative deepening completed, 0 after a fixed depth search
+     */
+    public int getIterations()
+    {
+        return this.iterations;
+    }
+
+    /**
+     * @param depth a depth iterative deepening completed, from 1 to getIterations()
+     * @return nanoseconds from the start of the search until that depth was completed
+     */
+    public long getTimeToDepth(int depth)
+    {
+        if (depth < 1 || depth > this.iterations)
+            throw new IllegalArgumentException("Depth " + depth + " wasn't completed");
+        return this.timeToDepth[depth - 1];
+    }
+
+    @Override
+    public String toString()
+    {
+        return "reductions " + this.lateMoveReductions + ", re-searches " + this.reSearches +
+                ", futility prunes " + this.futilityPrunes + ", razor prunes " + this.razorPrunes +
+                ", endgame solves " + this.endgameSolves + " (" + this.endgameNodes + " nodes)" +
+                ", evaluations " + this.evaluations + " (" + this.evaluationCacheHits + " cached)";
+    }
+}
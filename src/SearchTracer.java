@@ -0,0 +1,193 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records the search tree to a compact binary log, for TraceAnalyzer to make sense of offline.
+ * Records are written into preallocated buffers, and full buffers are handed to a background thread that
+ * writes them to the file, so recording never allocates nor waits on the disk (unless the writer falls behind
+ * every buffer). A tracer belongs to a single search thread.
+ * <p>
+ * The log is a header (magic number and version) followed by RECORD_SIZE byte records: type (1 byte), unused
+ * (1 byte), ply (2 bytes), depth (4 bytes), position hash (8 bytes) and four type specific ints, little endian.
+ * The moves of a position, in the order they are tried, take as many MOVES records as needed, four moves each.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SearchTracer implements Closeable
+{
+    static final int MAGIC = 0x4D4E4B52;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 32;
+
+    /** Search started: a, b, c, d unused. */
+    static final byte START = 1;
+    /** Position entered: a = alpha, b = beta. */
+    static final byte ENTER = 2;
+    /** Position searched: a = value, b = best move, c = index of the move that caused a cutoff (-1 if none), d = number of moves. */
+    static final byte EXIT = 3;
+    /** Transposition table probed: a = 1 on a hit, 0 on a miss. */
+    static final byte PROBE = 4;
+    /** Reduced move searched again at full depth: a = move, b = index of the move. */
+    static final byte RE_SEARCH = 5;
+    /** Moves of a position in the order they are tried, four at a time: depth = index of the first of them, a, b, c, d = moves (-1 past the last). */
+    static final byte MOVES = 6;
+
+    private static final int BUFFERS = 4;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> full;
+    private final Thread writer;
+    private final ByteBuffer endOfTrace;
+    private ByteBuffer buffer;
+    private volatile IOException failure;
+
+    /**
+     * Creates a tracer writing to the given file, replacing its contents
+     * @param file trace file
+     * @throws IOException if the file can't be opened
+     */
+    public SearchTracer(File file) throws IOException
+    {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.free = new ArrayBlockingQueue<>(BUFFERS);
+        this.full = new ArrayBlockingQueue<>(BUFFERS + 1);
+        for (int i = 0; i < BUFFERS; i++)
+            this.free.add(ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+        this.endOfTrace = ByteBuffer.allocate(0);
+
+        this.buffer = this.free.remove();
+        this.buffer.putInt(MAGIC).putInt(VERSION);
+        this.writer = new Thread(this::write, "search-tracer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Writer loop: writes full buffers to the file and hands them back empty
+     */
+    private void write()
+    {
+        try
+        {
+            while (true)
+            {
+                ByteBuffer buffer = this.full.take();
+                if (buffer == this.endOfTrace)
+                    return;
+
+                buffer.flip();
+                try
+                {
+                    while (buffer.hasRemaining())
+                        this.channel.write(buffer);
+                }
+                catch (IOException e)
+                {
+                    this.failure = e;
+                }
+                buffer.clear();
+                this.free.add(buffer);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void start(long hash, int depth)
+    {
+        this.record(START, hash, 0, depth, 0, 0, 0, 0);
+    }
+
+    void enter(long hash, int ply, int depth, int alpha, int beta)
+    {
+        this.record(ENTER, hash, ply, depth, alpha, beta, 0, 0);
+    }
+
+    void exit(long hash, int ply, int depth, int value, int bestMove, int cutoff, int moves)
+    {
+        this.record(EXIT, hash, ply, depth, value, bestMove, cutoff, moves);
+    }
+
+    void probe(long hash, int ply, int depth, boolean hit)
+    {
+        this.record(PROBE, hash, ply, depth, hit ? 1 : 0, 0, 0, 0);
+    }
+
+    void reSearch(long hash, int ply, int depth, int move, int order)
+    {
+        this.record(RE_SEARCH, hash, ply, depth, move, order, 0, 0);
+    }
+
+    void moves(long hash, int ply, int[] moves, int count)
+    {
+        for (int i = 0; i < count; i += 4)
+            this.record(MOVES, hash, ply, i, moves[i], i + 1 < count ? moves[i + 1] : -1,
+                    i + 2 < count ? moves[i + 2] : -1, i + 3 < count ? moves[i + 3] : -1);
+    }
+
+    /**
+     * Appends a record, handing the buffer to the writer when it fills up
+     */
+    private void record(byte type, long hash, int ply, int depth, int a, int b, int c, int d)
+    {
+        if (this.buffer.remaining() < RECORD_SIZE)
+            this.swap();
+        this.buffer.put(type).put((byte) 0).putShort((short) ply).putInt(depth).putLong(hash)
+                .putInt(a).putInt(b).putInt(c).putInt(d);
+    }
+
+    /**
+     * Hands the current buffer to the writer and takes an empty one
+     */
+    private void swap()
+    {
+        try
+        {
+            this.full.put(this.buffer);
+            this.buffer = this.free.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while tracing", e);
+        }
+    }
+
+    /**
+     * Writes the remaining records and closes the file
+     * @throws IOException if any record couldn't be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            this.full.put(this.buffer);
+            this.full.put(this.endOfTrace);
+            this.writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            this.channel.close();
+        }
+        if (this.failure != null)
+            throw this.failure;
+    }
+}
@@ -0,0 +1,529 @@
+import java.util.Arrays;
+
+/**
+ * Board for very large (or, in practice, unbounded) m,n,k-games that only stores the cells around stones,
+ * so that time and memory per move grow with the number of stones rather than with the size of the board.
+ * Stones, neighbourhood counts and threats live in primitive hash maps, and the line windows scored by the
+ * pattern table are read around the stone being placed instead of being kept for the whole board.
+ * The moves on offer are the empty cells within NEIGHBOURHOOD cells of a stone (or the centre of an empty board).
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SparseBoard implements ILayout, Cloneable
+{
+    private static final int NEIGHBOURHOOD = 2;
+    private static final int UNBOUNDED_SIZE = 46340;
+    private static final int OFF_BOARD = -1;
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+
+    private final int rows;
+    private final int columns;
+    private final int winConditionLength;
+    private final PatternTable patterns;
+    private final int[] weights;
+
+    private CellMap stones;
+    private CellMap nearby;
+    private CellMap[] threats;
+    private int[] threatCounts;
+    private long[] winnableWindows;
+    private int[] line;
+    private int[] playedMoves;
+    private int moveCount;
+    private int availableMoveCount;
+    private long hash;
+    private ID playersTurn;
+    private ID winner;
+    private boolean isGameOver;
+    private int evaluationXToMove;
+    private int evaluationOToMove;
+
+    /**
+     * Creates a brand-new board
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param winConditionLength number of stones in a row needed to win
+     */
+    public SparseBoard(int rows, int columns, int winConditionLength)
+    {
+        if (rows < 1 || columns < 1 || winConditionLength < 1 || (long) rows * columns > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid board size");
+
+        this.rows = rows;
+        this.columns = columns;
+        this.winConditionLength = winConditionLength;
+        this.patterns = new PatternTable(winConditionLength);
+        this.weights = new int[winConditionLength + 2];
+        for (int digit = 0; digit < this.weights.length; digit++)
+            this.weights[digit] = this.patterns.weight(digit);
+
+        this.stones = new CellMap(64);
+        this.nearby = new CellMap(256);
+        this.threats = new CellMap[ID.values().length];
+        for (int i = 0; i < this.threats.length; i++)
+            this.threats[i] = new CellMap(16);
+        this.threatCounts = new int[ID.values().length];
+        this.winnableWindows = new long[ID.values().length];
+        this.winnableWindows[ID.X.ordinal()] = countWindows(rows, columns, winConditionLength);
+        this.winnableWindows[ID.O.ordinal()] = this.winnableWindows[ID.X.ordinal()];
+        this.line = new int[2 * winConditionLength + 3];
+        this.playedMoves = new int[64];
+        this.playersTurn = ID.X;
+        this.winner = ID.Blank;
+    }
+
+    /**
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param length number of cells in a window
+     * @return number of windows of the given length in a row, in any direction, on a board of the given size
+     */
+    private static long countWindows(int rows, int columns, int length)
+    {
+        long across = Math.max(0, columns - length + 1);
+        long down = Math.max(0, rows - length + 1);
+        return rows * across + columns * down + 2 * across * down;
+    }
+
+    /**
+     * Creates a brand-new board that is, for any practical purpose, unbounded
+     * @param winConditionLength number of stones in a row needed to win
+     * @return the board, whose centre is the first move on offer
+     */
+    public static SparseBoard unbounded(int winConditionLength)
+    {
+        return new SparseBoard(UNBOUNDED_SIZE, UNBOUNDED_SIZE, winConditionLength);
+    }
+
+    /**
+     * Places an X or an O on the specified index depending on whose turn it is.
+     * @param index position starts in 0 and increases from left to right and from top to bottom
+     * @return true if the move has not already been played
+     */
+    @Override
+    public boolean move(int index)
+    {
+        if (this.isGameOver)
+            throw new IllegalStateException("Game over. No more moves can be played.");
+        if (index < 0 || index >= this.rows * this.columns)
+            throw new IllegalArgumentException("Invalid move");
+        if (this.stones.get(index) != 0)
+            return false;
+
+        int stone = this.playersTurn.ordinal();
+        boolean isWinningMove = this.threats[stone].get(index) > 0;
+        if (this.nearby.get(index) > 0)
+            this.availableMoveCount--;
+        this.updateWindows(index, stone);
+        this.updateNearby(index, 1);
+        this.stones.add(index, stone);
+        this.hash ^= zobrist(index, stone);
+
+        if (this.moveCount == this.playedMoves.length)
+            this.playedMoves = Arrays.copyOf(this.playedMoves, this.moveCount * 2);
+        this.playedMoves[this.moveCount++] = index;
+
+        // The game is a draw, as the board is full or neither player can complete a window any more.
+        if (this.moveCount == this.rows * this.columns ||
+                (this.winnableWindows[ID.X.ordinal()] == 0 && this.winnableWindows[ID.O.ordinal()] == 0))
+        {
+            this.winner = ID.Blank;
+            this.isGameOver = true;
+        }
+
+        // Check for a winner, which happens when a window one stone short of a win is completed.
+        if (isWinningMove)
+        {
+            this.winner = this.playersTurn;
+            this.isGameOver = true;
+        }
+
+        this.playersTurn = this.playersTurn == ID.X ? ID.O : ID.X;
+        return true;
+    }
+
+    /**
+     * Takes back the last move played.
+     */
+    @Override
+    public void undoMove()
+    {
+        if (this.moveCount == 0)
+            throw new IllegalStateException("No moves to undo.");
+
+        int index = this.playedMoves[--this.moveCount];
+        int stone = this.stones.get(index);
+        this.updateWindows(index, -stone);
+        this.stones.add(index, -stone);
+        this.hash ^= zobrist(index, stone);
+        this.updateNearby(index, -1);
+        if (this.nearby.get(index) > 0)
+            this.availableMoveCount++;
+
+        this.playersTurn = ID.values()[stone];
+        this.winner = ID.Blank;
+        this.isGameOver = false;
+    }
+
+    /**
+     * Updates the neighbourhood counts around a cell, and with them the number of moves on offer
+     * @param index position of the cell
+     * @param delta 1 if a stone was placed on the cell, -1 if it was removed
+     */
+    private void updateNearby(int index, int delta)
+    {
+        int x = index % this.columns;
+        int y = index / this.columns;
+        for (int dy = -NEIGHBOURHOOD; dy <= NEIGHBOURHOOD; dy++)
+            for (int dx = -NEIGHBOURHOOD; dx <= NEIGHBOURHOOD; dx++)
+            {
+                if ((dx == 0 && dy == 0) || !this.isOnBoard(x + dx, y + dy))
+                    continue;
+
+                int neighbour = (y + dy) * this.columns + x + dx;
+                int count = this.nearby.add(neighbour, delta);
+                if (this.stones.get(neighbour) == 0 && count == (delta > 0 ? 1 : 0))
+                    this.availableMoveCount += delta;
+            }
+    }
+
+    /**
+     * Updates the evaluation and threats for every window a cell is part of, as a window or a flank cell.
+     * Must be called while the cell still holds its content from before the change.
+     * @param index position of the cell
+     * @param delta stone placed on the cell (X or O ordinal), or its negative if it was removed
+     */
+    private void updateWindows(int index, int delta)
+    {
+        int length = this.winConditionLength;
+        int x = index % this.columns;
+        int y = index / this.columns;
+        for (int[] direction : DIRECTIONS)
+        {
+            // The cells up to length + 1 away on either side of the given one cover all its windows and their flanks.
+            for (int t = -length - 1; t <= length + 1; t++)
+            {
+                int cellX = x + t * direction[0];
+                int cellY = y + t * direction[1];
+                this.line[t + length + 1] = this.isOnBoard(cellX, cellY) ? this.stones.get(cellY * this.columns + cellX) : OFF_BOARD;
+            }
+
+            // Windows start from length cells before the given one (its right flank) up to the cell after it (its left flank).
+            for (int start = -length; start <= 1; start++)
+            {
+                if (this.line[start + length + 1] == OFF_BOARD || this.line[start + 2 * length] == OFF_BOARD)
+                    continue;
+
+                int code = 0;
+                for (int digit = 0; digit < length + 2; digit++)
+                {
+                    int cell = this.line[start + digit + length];
+                    code += (cell == OFF_BOARD ? 1 : cell) * this.weights[digit];
+                }
+                int newCode = code + delta * this.weights[1 - start];
+
+                this.evaluationXToMove += this.patterns.getScoreXToMove(newCode) - this.patterns.getScoreXToMove(code);
+                this.evaluationOToMove += this.patterns.getScoreOToMove(newCode) - this.patterns.getScoreOToMove(code);
+                this.updateThreat(code, x, y, direction, start, -1);
+                this.updateThreat(newCode, x, y, direction, start, 1);
+                if (start > -length && start < 1)
+                    this.updateWinnable(start, delta);
+            }
+        }
+    }
+
+    /**
+     * Updates the number of windows each player can still complete, for a window the changed cell is part of
+     * @param start offset of the window's first cell from the changed cell, whose line was read into line
+     * @param delta stone placed on the cell (X or O ordinal), or its negative if it was removed
+     */
+    private void updateWinnable(int start, int delta)
+    {
+        int stone = Math.abs(delta);
+        int stones = 0;
+        for (int digit = 1; digit <= this.winConditionLength; digit++)
+            if (this.line[start + digit + this.winConditionLength] == stone)
+                stones++;
+
+        // The first stone of a player in a window takes it away from the opponent, removing the last one gives it back.
+        int opponent = stone == ID.X.ordinal() ? ID.O.ordinal() : ID.X.ordinal();
+        if (delta > 0 && stones == 0)
+            this.winnableWindows[opponent]--;
+        else if (delta < 0 && stones == 1)
+            this.winnableWindows[opponent]++;
+    }
+
+    /**
+     * Counts (or stops counting) a window as a threat on its blank cell, if it is one stone short of a win
+     * @param code pattern code of the window
+     * @param x x coordinate of the cell the window was found from
+     * @param y y coordinate of the cell the window was found from
+     * @param direction direction of the window
+     * @param start offset of the window's first cell from the given cell
+     * @param delta 1 to count the window, -1 to stop counting it
+     */
+    private void updateThreat(int code, int x, int y, int[] direction, int start, int delta)
+    {
+        int threat = this.patterns.getThreat(code);
+        if (threat == 0)
+            return;
+
+        int owner = this.patterns.getThreatOwner(code);
+        int offset = start + threat - 1;
+        this.threats[owner].add((y + offset * direction[1]) * this.columns + x + offset * direction[0], delta);
+        this.threatCounts[owner] += delta;
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if the location is on the board
+     */
+    private boolean isOnBoard(int x, int y)
+    {
+        return x >= 0 && x < this.columns && y >= 0 && y < this.rows;
+    }
+
+    /**
+     * @param index position of a cell
+     * @param stone X or O ordinal
+     * @return pseudo random 64-bit key of the stone on the cell
+     */
+    private static long zobrist(int index, int stone)
+    {
+        long z = ((long) index << 2 | stone) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return position of the centre of the board
+     */
+    private int getCentre()
+    {
+        return this.rows / 2 * this.columns + this.columns / 2;
+    }
+
+    @Override
+    public boolean isGameOver()
+    {
+        return this.isGameOver;
+    }
+
+    @Override
+    public ID getTurn()
+    {
+        return this.playersTurn;
+    }
+
+    @Override
+    public ID getWinner()
+    {
+        if (!this.isGameOver)
+            throw new IllegalStateException("Not over yet!");
+        return this.winner;
+    }
+
+    /**
+     * @param player X or O
+     * @return true if some window holds none of the opponent's stones, so the player may still win
+     */
+    @Override
+    public boolean canWin(ID player)
+    {
+        return this.winnableWindows[player.ordinal()] > 0;
+    }
+
+    /**
+     * @return the number of empty cells near a stone
+     */
+    @Override
+    public int getAvailableMoveCount()
+    {
+        if (this.isGameOver)
+            return 0;
+        return this.moveCount == 0 ? 1 : this.availableMoveCount;
+    }
+
+    /**
+     * Copies the indexes of the empty cells near a stone into the given buffer.
+     * @param moves buffer to fill
+     * @return the number of moves written to the buffer
+     */
+    @Override
+    public int getAvailableMoves(int[] moves)
+    {
+        if (this.isGameOver)
+            return 0;
+        if (this.moveCount == 0)
+        {
+            moves[0] = this.getCentre();
+            return 1;
+        }
+
+        int count = 0;
+        for (int slot = 0; slot < this.nearby.capacity(); slot++)
+        {
+            int cell = this.nearby.getCell(slot);
+            if (cell >= 0 && this.stones.get(cell) == 0)
+                moves[count++] = cell;
+        }
+        return count;
+    }
+
+    /**
+     * Lists the moves the player at turn is forced to play, found from the threats kept up to date on every move.
+     * @param moves buffer to fill
+     * @return the number of forced moves, 0 if no move is forced
+     */
+    @Override
+    public int getForcedMoves(int[] moves)
+    {
+        if (this.isGameOver)
+            return 0;
+
+        CellMap wins = this.threats[this.playersTurn.ordinal()];
+        CellMap losses = this.threats[this.playersTurn == ID.X ? ID.O.ordinal() : ID.X.ordinal()];
+        CellMap forced = wins.size() > 0 ? wins : losses;
+        int count = 0;
+        for (int slot = 0; slot < forced.capacity(); slot++)
+            if (forced.getCell(slot) >= 0)
+            {
+                moves[count++] = forced.getCell(slot);
+                if (forced == wins)
+                    break;
+            }
+        return count;
+    }
+
+    /**
+     * @return Zobrist style hash of the stones on the board
+     */
+    @Override
+    public long getHash()
+    {
+        return this.hash;
+    }
+
+    /**
+     * Symmetric positions are too rare on large boards to be worth looking for, so this is the plain hash.
+     * @return the hash of the board
+     */
+    @Override
+    public long getCanonicalHash()
+    {
+        return this.hash;
+    }
+
+    /**
+     * Sums the pattern table score of every window holding a stone, as seen by the player at turn.
+     * @return the layout's evaluation.
+     */
+    @Override
+    public int getEvaluation()
+    {
+        if (this.isGameOver)
+        {
+            if (this.winner == ID.Blank)
+                return 0;
+            return this.winner == ID.X ? MAX_EVALUATION : MIN_EVALUATION;
+        }
+
+        int evaluation = this.playersTurn == ID.X ? this.evaluationXToMove : this.evaluationOToMove;
+        return Math.max(MIN_EVALUATION + MAX_WIN_DISTANCE + 1, Math.min(MAX_EVALUATION - MAX_WIN_DISTANCE - 1, evaluation));
+    }
+
+    /**
+     * Checks if given position is blank
+     * @param index index of position
+     * @return true if position is blank, false otherwise
+     */
+    public boolean isBlank(int index)
+    {
+        return this.stones.get(index) == 0;
+    }
+
+    /**
+     * @return a deep copy of the board
+     */
+    @Override
+    public Object clone()
+    {
+        try
+        {
+            SparseBoard b = (SparseBoard) super.clone();
+            b.stones = this.stones.copy();
+            b.nearby = this.nearby.copy();
+            b.threats = new CellMap[this.threats.length];
+            for (int i = 0; i < this.threats.length; i++)
+                b.threats[i] = this.threats[i].copy();
+            b.threatCounts = this.threatCounts.clone();
+            b.winnableWindows = this.winnableWindows.clone();
+            b.line = new int[this.line.length];
+            b.playedMoves = this.playedMoves.clone();
+            return b;
+        }
+        catch (CloneNotSupportedException e)
+        {
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Prints the part of the board around the stones
+     * @return the board as text
+     */
+    @Override
+    public String toString()
+    {
+        int minX = this.columns / 2, maxX = this.columns / 2, minY = this.rows / 2, maxY = this.rows / 2;
+        for (int i = 0; i < this.moveCount; i++)
+        {
+            minX = Math.min(minX, this.playedMoves[i] % this.columns);
+            maxX = Math.max(maxX, this.playedMoves[i] % this.columns);
+            minY = Math.min(minY, this.playedMoves[i] / this.columns);
+            maxY = Math.max(maxY, this.playedMoves[i] / this.columns);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int y = Math.max(minY - 1, 0); y <= Math.min(maxY + 1, this.rows - 1); y++)
+        {
+            sb.append(y).append(" ");
+            for (int x = Math.max(minX - 1, 0); x <= Math.min(maxX + 1, this.columns - 1); x++)
+            {
+                int stone = this.stones.get(y * this.columns + x);
+                sb.append(stone == 0 ? "-" : ID.values()[stone].name()).append(" ");
+            }
+            sb.append("\n");
+        }
+        return sb.toString().trim();
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (other == this)
+            return true;
+        if (other == null || getClass() != other.getClass())
+            return false;
+
+        SparseBoard that = (SparseBoard) other;
+        if (this.hash != that.hash || this.rows != that.rows || this.columns != that.columns ||
+                this.winConditionLength != that.winConditionLength || this.stones.size() != that.stones.size())
+            return false;
+        for (int slot = 0; slot < this.stones.capacity(); slot++)
+        {
+            int cell = this.stones.getCell(slot);
+            if (cell >= 0 && this.stones.getValue(slot) != that.stones.get(cell))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(this.hash);
+    }
+}
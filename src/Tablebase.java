@@ -0,0 +1,194 @@
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Perfect play table for the configured board, holding the game theoretical value of every
+ * reachable position in 2 bits, indexed by the canonical base 3 hash of the position
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class Tablebase
+{
+    static final int UNKNOWN = 0;
+    static final int X_WINS = 1;
+    static final int DRAW = 2;
+    static final int O_WINS = 3;
+
+    static final int MAX_CELLS = 20;
+    private static final int MAGIC = 0x4D4E4B54;
+    private static final int VERSION = 1;
+
+    private final long[] entries;
+
+    /**
+     * Creates a tablebase from its packed entries
+     * @param entries 32 positions per entry, 2 bits each
+     */
+    Tablebase(long[] entries)
+    {
+        this.entries = entries;
+    }
+
+    /**
+     * @return number of positions the table has room for (3 to the power of the number of cells)
+     */
+    static long getSize()
+    {
+        long size = 1;
+        for (int i = 0; i < ILayout.ROWS * ILayout.COLUMNS; i++)
+            size *= 3;
+        return size;
+    }
+
+    /**
+     * @return number of packed entries needed to hold every position
+     */
+    static int getEntryCount()
+    {
+        return (int) ((getSize() + 31) / 32);
+    }
+
+    /**
+     * @param index position index
+     * @return the packed entry that holds the position
+     */
+    static int entry(long index)
+    {
+        return (int) (index >>> 5);
+    }
+
+    /**
+     * @param index position index
+     * @return offset of the position's 2 bits inside its packed entry
+     */
+    static int shift(long index)
+    {
+        return (int) (index & 31) << 1;
+    }
+
+    /**
+     * @param board position to look up
+     * @return X_WINS, DRAW or O_WINS, or UNKNOWN if the position isn't in the table
+     */
+    public int getValue(ILayout board)
+    {
+        if (board.isGameOver())
+        {
+            ILayout.ID winner = board.getWinner();
+            return winner == ILayout.ID.X ? X_WINS : winner == ILayout.ID.O ? O_WINS : DRAW;
+        }
+
+        long index = board.getCanonicalHash();
+        if (index < 0 || entry(index) >= this.entries.length)
+            return UNKNOWN;
+        return (int) (this.entries[entry(index)] >>> shift(index)) & 3;
+    }
+
+    /**
+     * Picks a move that keeps the best game theoretical value for the player at turn
+     * @param board position to play on, left unchanged
+     * @return the move to play, or -1 if the position or any of its children isn't in the table
+     */
+    public int getBestMove(ILayout board)
+    {
+        if (board.isGameOver())
+            return -1;
+
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int count = board.getAvailableMoves(moves);
+        int bestMove = -1;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++)
+        {
+            board.move(moves[i]);
+            int value = this.getValue(board);
+            board.undoMove();
+
+            if (value == UNKNOWN)
+                return -1;
+            // X prefers X_WINS (1) over DRAW (2) over O_WINS (3), O the other way round.
+            int rank = board.getTurn() == ILayout.ID.X ? -value : value;
+            if (rank > bestRank)
+            {
+                bestRank = rank;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Writes the table to a file
+     * @param file file to write to
+     * @throws IOException if the file can't be written
+     */
+    public void save(File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file)))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ILayout.ROWS);
+            out.writeInt(ILayout.COLUMNS);
+            out.writeInt(ILayout.WIN_CONDITION_LENGTH);
+            out.writeInt(this.entries.length);
+            for (long entry : this.entries)
+                out.writeLong(entry);
+        }
+    }
+
+    /**
+     * Reads a table from a file
+     * @param file file to read from
+     * @return the table
+     * @throws IOException if the file can't be read or holds a table for another board
+     */
+    public static Tablebase load(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file)))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Not a tablebase: " + file);
+            if (in.readInt() != ILayout.ROWS || in.readInt() != ILayout.COLUMNS || in.readInt() != ILayout.WIN_CONDITION_LENGTH)
+                throw new IOException("Tablebase was generated for another board: " + file);
+
+            int length = in.readInt();
+            if (length != getEntryCount())
+                throw new IOException("Corrupted tablebase: " + file);
+            long[] entries = new long[length];
+            for (int i = 0; i < length; i++)
+                entries[i] = in.readLong();
+            return new Tablebase(entries);
+        }
+    }
+
+    /**
+     * @return file the tablebase for the configured board is looked up at by default
+     */
+    public static File getDefaultFile()
+    {
+        return new File("mnk-" + ILayout.ROWS + "x" + ILayout.COLUMNS + "x" + ILayout.WIN_CONDITION_LENGTH + ".tb");
+    }
+
+    /**
+     * Reads the tablebase for the configured board from its default file, if there is one
+     * @return the table, or null if there is no usable table
+     */
+    public static Tablebase loadDefault()
+    {
+        File file = getDefaultFile();
+        if (!file.isFile())
+            return null;
+
+        try
+        {
+            return load(file);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Ignoring tablebase: " + e.getMessage());
+            return null;
+        }
+    }
+}
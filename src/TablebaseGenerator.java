@@ -0,0 +1,163 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Offline exhaustive solver that builds the tablebase for the configured board.
+ * The positions a few moves deep are solved in parallel, each worker on its own board, all of them
+ * sharing the same table so that transpositions between workers are solved only once.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class TablebaseGenerator
+{
+    private static final int SPLIT_DEPTH = 2;
+
+    private final AtomicLongArray entries;
+
+    /**
+     * Creates a generator with an empty table
+     */
+    public TablebaseGenerator()
+    {
+        if (ILayout.ROWS * ILayout.COLUMNS > Tablebase.MAX_CELLS)
+            throw new IllegalStateException("Board too big for a tablebase");
+        this.entries = new AtomicLongArray(Tablebase.getEntryCount());
+    }
+
+    /**
+     * Solves every position reachable from the empty board
+     * @param threads number of worker threads
+     * @return the tablebase
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public Tablebase generate(int threads) throws InterruptedException
+    {
+        ArrayList<ILayout> tasks = new ArrayList<>();
+        this.split(new Board(), SPLIT_DEPTH, new HashSet<>(), tasks);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try
+        {
+            ArrayList<Future<Integer>> results = new ArrayList<>(tasks.size());
+            for (ILayout task : tasks)
+                results.add(workers.submit(() -> this.solve(task)));
+            for (int i = 0; i < results.size(); i++)
+            {
+                results.get(i).get();
+                System.out.println("Solved " + (i + 1) + "/" + results.size() + " subtrees");
+            }
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+        finally
+        {
+            workers.shutdown();
+        }
+
+        // Everything below the split depth is in the table by now, so this is quick.
+        this.solve(new Board());
+
+        long[] entries = new long[this.entries.length()];
+        for (int i = 0; i < entries.length; i++)
+            entries[i] = this.entries.get(i);
+        return new Tablebase(entries);
+    }
+
+    /**
+     * Collects the distinct (up to symmetry) positions at a given depth
+     * @param board current position
+     * @param depth remaining depth
+     * @param seen canonical hashes of the positions collected so far
+     * @param tasks positions collected so far
+     */
+    private void split(ILayout board, int depth, HashSet<Long> seen, ArrayList<ILayout> tasks)
+    {
+        if (board.isGameOver() || depth == 0)
+        {
+            if (seen.add(board.getCanonicalHash()))
+                tasks.add((ILayout) board.clone());
+            return;
+        }
+
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int count = board.getAvailableMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            board.move(moves[i]);
+            this.split(board, depth - 1, seen, tasks);
+            board.undoMove();
+        }
+    }
+
+    /**
+     * Solves a position and every position reachable from it, storing them all in the table
+     * @param board position to solve, left unchanged
+     * @return X_WINS, DRAW or O_WINS
+     */
+    private int solve(ILayout board)
+    {
+        if (board.isGameOver())
+        {
+            ILayout.ID winner = board.getWinner();
+            return winner == ILayout.ID.X ? Tablebase.X_WINS : winner == ILayout.ID.O ? Tablebase.O_WINS : Tablebase.DRAW;
+        }
+
+        long index = board.getCanonicalHash();
+        int value = (int) (this.entries.get(Tablebase.entry(index)) >>> Tablebase.shift(index)) & 3;
+        if (value != Tablebase.UNKNOWN)
+            return value;
+
+        // Every child is solved, even after a win is found, so that the table covers any reply to a mistake.
+        boolean isX = board.getTurn() == ILayout.ID.X;
+        int best = isX ? Tablebase.O_WINS : Tablebase.X_WINS;
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int count = board.getAvailableMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            board.move(moves[i]);
+            int childValue = this.solve(board);
+            board.undoMove();
+            best = isX ? Math.min(best, childValue) : Math.max(best, childValue);
+        }
+
+        this.set(index, best);
+        return best;
+    }
+
+    /**
+     * Stores the value of a position, racing safely with the other workers writing the same entry
+     * @param index position index
+     * @param value X_WINS, DRAW or O_WINS
+     */
+    private void set(long index, int value)
+    {
+        int entry = Tablebase.entry(index);
+        int shift = Tablebase.shift(index);
+        long current;
+        do
+            current = this.entries.get(entry);
+        while (!this.entries.compareAndSet(entry, current, (current & ~(3L << shift)) | ((long) value << shift)));
+    }
+
+    /**
+     * Generates the tablebase for the configured board
+     * @param args optional output file and number of worker threads
+     * @throws Exception if the table can't be generated or written
+     */
+    public static void main(String[] args) throws Exception
+    {
+        File file = args.length > 0 ? new File(args[0]) : Tablebase.getDefaultFile();
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.currentTimeMillis();
+        Tablebase tablebase = new TablebaseGenerator().generate(threads);
+        tablebase.save(file);
+        System.out.println("Wrote " + file + " in " + (System.currentTimeMillis() - start) / 1000 + "s");
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summarises a search trace written by SearchTracer: which subtrees took the most nodes, how often move
+ * ordering failed to put the refuting (or best) move first and which move it put there instead, and where
+ * late move reductions had to search again.
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class TraceAnalyzer
+{
+    private static final int DEFAULT_TOP = 10;
+    private static final int DEFAULT_SUBTREE_PLY = 2;
+    private static final int MAX_PLY = 1024;
+    private static final int CUTOFF_BUCKETS = 5;
+
+    private final int subtreePly;
+    private final Map<Long, long[]> subtrees;
+    private final Map<Long, long[]> lateCutoffs;
+    private final Map<Long, long[]> reSearchedPositions;
+    private final Map<Long, int[]> refutations;
+    private final long[] openHashes;
+    private final long[] openNodes;
+    private final long[] cutoffsByOrder;
+    private final long[] reSearchesByPly;
+    private final long[] bestMovesByOrder;
+    private final long[] orderedHashes;
+    private final int[][] orderedMoves;
+    private final int[] orderedMoveCounts;
+    private int openPly;
+    private long searches;
+    private long nodes;
+    private long searched;
+    private long cutoffs;
+    private long probeHits;
+    private long probeMisses;
+    private long ordered;
+    private long reSearches;
+
+    /**
+     * Creates an empty summary
+     * @param subtreePly subtrees rooted up to this many plies from the root are ranked
+     */
+    TraceAnalyzer(int subtreePly)
+    {
+        this.subtreePly = subtreePly;
+        this.subtrees = new HashMap<>();
+        this.lateCutoffs = new HashMap<>();
+        this.reSearchedPositions = new HashMap<>();
+        this.refutations = new HashMap<>();
+        this.openHashes = new long[subtreePly + 1];
+        this.openNodes = new long[subtreePly + 1];
+        this.cutoffsByOrder = new long[CUTOFF_BUCKETS];
+        this.reSearchesByPly = new long[MAX_PLY];
+        this.bestMovesByOrder = new long[CUTOFF_BUCKETS];
+        this.orderedHashes = new long[MAX_PLY];
+        this.orderedMoves = new int[MAX_PLY][];
+        this.orderedMoveCounts = new int[MAX_PLY];
+        this.openPly = -1;
+    }
+
+    /**
+     * Reads a trace file into the summary
+     * @param file trace file
+     * @throws IOException if the file can't be read or isn't a trace
+     */
+    void read(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(SearchTracer.RECORD_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(SearchTracer.HEADER_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+                ;
+            buffer.flip();
+            if (buffer.remaining() < SearchTracer.HEADER_SIZE || buffer.getInt() != SearchTracer.MAGIC)
+                throw new IOException("Not a search trace: " + file);
+            if (buffer.getInt() != SearchTracer.VERSION)
+                throw new IOException("Unsupported search trace version: " + file);
+
+            buffer.clear();
+            while (channel.read(buffer) >= 0)
+            {
+                buffer.flip();
+                while (buffer.remaining() >= SearchTracer.RECORD_SIZE)
+                    this.record(buffer);
+                buffer.compact();
+            }
+            if (buffer.position() > 0)
+                throw new IOException("Truncated search trace: " + file);
+        }
+        this.closeSubtrees(0);
+    }
+
+    /**
+     * Adds one record to the summary
+     * @param buffer buffer positioned at the record
+     */
+    private void record(ByteBuffer buffer)
+    {
+        int start = buffer.position();
+        byte type = buffer.get(start);
+        int ply = Math.min(buffer.getShort(start + 2) & 0xFFFF, MAX_PLY - 1);
+        int depth = buffer.getInt(start + 4);
+        long hash = buffer.getLong(start + 8);
+        int a = buffer.getInt(start + 16);
+        int b = buffer.getInt(start + 20);
+        int c = buffer.getInt(start + 24);
+        int d = buffer.getInt(start + 28);
+        buffer.position(start + SearchTracer.RECORD_SIZE);
+
+        switch (type)
+        {
+            case SearchTracer.START:
+                this.searches++;
+                this.closeSubtrees(0);
+                break;
+            case SearchTracer.ENTER:
+                this.closeSubtrees(ply);
+                this.nodes++;
+                if (ply <= this.subtreePly)
+                {
+                    this.openPly = ply;
+                    this.openHashes[ply] = hash;
+                    this.openNodes[ply] = this.nodes;
+                }
+                break;
+            case SearchTracer.EXIT:
+                this.searched++;
+                if (c >= 0)
+                {
+                    this.cutoffs++;
+                    this.cutoffsByOrder[Math.min(c, CUTOFF_BUCKETS - 1)]++;
+                    if (c > 0)
+                        count(this.lateCutoffs, hash, c);
+                }
+                this.orderOf(ply, hash, b, c);
+                break;
+            case SearchTracer.MOVES:
+                this.addMoves(ply, hash, depth, a, b, c, d);
+                break;
+            case SearchTracer.PROBE:
+                if (a != 0)
+                    this.probeHits++;
+                else
+                    this.probeMisses++;
+                break;
+            case SearchTracer.RE_SEARCH:
+                this.reSearches++;
+                this.reSearchesByPly[Math.min(ply, MAX_PLY - 1)]++;
+                count(this.reSearchedPositions, hash, 1);
+                break;
+            default:
+                throw new IllegalStateException("Unknown trace record type " + type);
+        }
+    }
+
+    /**
+     * Adds moves to the move order of the position last searched at a ply
+     * @param ply distance to the root
+     * @param hash position hash
+     * @param offset index of the first of the moves in the move order, 0 for a new position
+     * @param moves moves, -1 past the last
+     */
+    private void addMoves(int ply, long hash, int offset, int... moves)
+    {
+        if (offset == 0)
+        {
+            this.orderedHashes[ply] = hash;
+            this.orderedMoveCounts[ply] = 0;
+        }
+        else if (this.orderedHashes[ply] != hash || this.orderedMoveCounts[ply] != offset)
+            return;
+
+        if (this.orderedMoves[ply] == null || this.orderedMoves[ply].length < offset + moves.length)
+            this.orderedMoves[ply] = Arrays.copyOf(this.orderedMoves[ply] == null ? new int[0] : this.orderedMoves[ply],
+                    Math.max(16, 2 * (offset + moves.length)));
+        for (int move : moves)
+            if (move >= 0)
+                this.orderedMoves[ply][this.orderedMoveCounts[ply]++] = move;
+    }
+
+    /**
+     * Finds where the best move of a position was on its move order, and which move was tried ahead of the refutation
+     * @param ply distance to the root
+     * @param hash position hash
+     * @param bestMove best move found
+     * @param cutoff index of the move that caused a cutoff, -1 if none
+     */
+    private void orderOf(int ply, long hash, int bestMove, int cutoff)
+    {
+        if (this.orderedHashes[ply] != hash || this.orderedMoveCounts[ply] == 0)
+            return;
+
+        int[] moves = this.orderedMoves[ply];
+        int count = this.orderedMoveCounts[ply];
+        for (int i = 0; i < count; i++)
+            if (moves[i] == bestMove)
+            {
+                this.ordered++;
+                this.bestMovesByOrder[Math.min(i, CUTOFF_BUCKETS - 1)]++;
+                break;
+            }
+        if (cutoff > 0 && cutoff < count)
+            this.refutations.put(hash, new int[] {moves[0], moves[cutoff]});
+        this.orderedMoveCounts[ply] = 0;
+    }
+
+    /**
+     * Adds the size of every open subtree rooted at the given ply or deeper to its totals
+     * @param ply shallowest ply to close
+     */
+    private void closeSubtrees(int ply)
+    {
+        for (; this.openPly >= ply; this.openPly--)
+        {
+            long size = this.nodes - this.openNodes[this.openPly] + 1;
+            long[] total = this.subtrees.computeIfAbsent(this.openHashes[this.openPly], k -> new long[3]);
+            total[0] += size;
+            total[1]++;
+            total[2] = this.openPly;
+        }
+    }
+
+    /**
+     * Adds to a position's total
+     * @param totals totals by position hash, as {total, occurrences}
+     * @param hash position hash
+     * @param amount amount to add
+     */
+    private static void count(Map<Long, long[]> totals, long hash, long amount)
+    {
+        long[] total = totals.computeIfAbsent(hash, k -> new long[2]);
+        total[0] += amount;
+        total[1]++;
+    }
+
+    /**
+     * @param totals totals by position hash
+     * @param top number of positions to keep
+     * @return the positions with the largest totals, largest first
+     */
+    private static List<Map.Entry<Long, long[]>> top(Map<Long, long[]> totals, int top)
+    {
+        List<Map.Entry<Long, long[]>> entries = new ArrayList<>(totals.entrySet());
+        entries.sort((e1, e2) -> Long.compare(e2.getValue()[0], e1.getValue()[0]));
+        return entries.subList(0, Math.min(top, entries.size()));
+    }
+
+    /**
+     * @param part part
+     * @param whole whole
+     * @return part as a percentage of whole
+     */
+    private static String percent(long part, long whole)
+    {
+        return String.format("%.1f%%", whole == 0 ? 0.0 : 100.0 * part / whole);
+    }
+
+    /**
+     * Prints the summary
+     * @param top number of positions to list in each ranking
+     */
+    void print(int top)
+    {
+        System.out.println("Searches: " + this.searches + ", nodes: " + this.nodes + ", nodes searched past the table: " + this.searched);
+        System.out.println("Transposition table hits: " + this.probeHits + " of " + (this.probeHits + this.probeMisses) +
+                " probes (" + percent(this.probeHits, this.probeHits + this.probeMisses) + ")");
+
+        System.out.println();
+        System.out.println("Hottest subtrees (rooted up to ply " + this.subtreePly + "):");
+        for (Map.Entry<Long, long[]> entry : top(this.subtrees, top))
+            System.out.printf("  %016x  ply %d  %d nodes in %d visits (%s)%n", entry.getKey(), entry.getValue()[2],
+                    entry.getValue()[0], entry.getValue()[1], percent(entry.getValue()[0], this.nodes));
+
+        System.out.println();
+        System.out.println("Cutoffs: " + this.cutoffs + " of " + this.searched + " positions searched");
+        for (int i = 0; i < CUTOFF_BUCKETS; i++)
+            System.out.println("  on move " + (i + 1) + (i == CUTOFF_BUCKETS - 1 ? "+" : "") + ": " +
+                    this.cutoffsByOrder[i] + " (" + percent(this.cutoffsByOrder[i], this.cutoffs) + ")");
+        System.out.println("Best move by its place in the move order: " + this.ordered + " positions");
+        for (int i = 0; i < CUTOFF_BUCKETS; i++)
+            System.out.println("  move " + (i + 1) + (i == CUTOFF_BUCKETS - 1 ? "+" : "") + ": " +
+                    this.bestMovesByOrder[i] + " (" + percent(this.bestMovesByOrder[i], this.ordered) + ")");
+        System.out.println("Worst ordered positions (total moves searched before the cutoff, last seen first move and refutation):");
+        for (Map.Entry<Long, long[]> entry : top(this.lateCutoffs, top))
+        {
+            int[] refutation = this.refutations.get(entry.getKey());
+            System.out.printf("  %016x  %d moves over %d late cutoffs%s%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1],
+                    refutation == null ? "" : ", tried " + refutation[0] + " before " + refutation[1]);
+        }
+
+        System.out.println();
+        System.out.println("Re-searches after a reduced search: " + this.reSearches);
+        for (int ply = 0; ply < MAX_PLY; ply++)
+            if (this.reSearchesByPly[ply] > 0)
+                System.out.println("  ply " + ply + ": " + this.reSearchesByPly[ply]);
+        System.out.println("Most re-searched positions:");
+        for (Map.Entry<Long, long[]> entry : top(this.reSearchedPositions, top))
+            System.out.printf("  %016x  %d re-searches%n", entry.getKey(), entry.getValue()[0]);
+    }
+
+    /**
+     * Summarises a trace file
+     * @param args trace file, then optionally the number of positions to list (default DEFAULT_TOP) and
+     * the deepest ply at which subtrees are ranked (default DEFAULT_SUBTREE_PLY)
+     * @throws IOException if the file can't be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: TraceAnalyzer <trace file> [top] [subtree ply]");
+            System.exit(2);
+        }
+
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TOP;
+        int subtreePly = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SUBTREE_PLY;
+        TraceAnalyzer analyzer = new TraceAnalyzer(subtreePly);
+        analyzer.read(new File(args[0]));
+        analyzer.print(top);
+    }
+}
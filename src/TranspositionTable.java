@@ -0,0 +1,97 @@
+import java.util.Arrays;
+
+/**
+ * Fixed size transposition table keyed by 64-bit position hashes, backed by primitive arrays
+ * so that probing and storing never allocates
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+class TranspositionTable
+{
+    static final byte EXACT = 1;
+    static final byte LOWER_BOUND = 2;
+    static final byte UPPER_BOUND = 3;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int[] depths;
+    private final byte[] bounds;
+    private final int mask;
+    private final int shift;
+
+    /**
+     * Creates a table with 2^bits entries
+     * @param bits base 2 logarithm of the number of entries
+     */
+    TranspositionTable(int bits)
+    {
+        if (bits < 1 || bits > 30)
+            throw new IllegalArgumentException("Invalid table size");
+
+        this.keys = new long[1 << bits];
+        this.values = new int[1 << bits];
+        this.depths = new int[1 << bits];
+        this.bounds = new byte[1 << bits];
+        this.mask = (1 << bits) - 1;
+        this.shift = 64 - bits;
+    }
+
+    /**
+     * Looks up a position
+     * @param key position hash
+     * @return the entry holding the position, or -1 if it isn't stored
+     */
+    int probe(long key)
+    {
+        int entry = this.index(key);
+        return this.bounds[entry] != 0 && this.keys[entry] == key ? entry : -1;
+    }
+
+    /**
+     * Stores a position, replacing whatever was on its entry
+     * @param key position hash
+     * @param value search value of the position
+     * @param depth remaining depth the value was searched with
+     * @param bound whether the value is EXACT, a LOWER_BOUND or an UPPER_BOUND
+     */
+    void store(long key, int value, int depth, byte bound)
+    {
+        int entry = this.index(key);
+        this.keys[entry] = key;
+        this.values[entry] = value;
+        this.depths[entry] = depth;
+        this.bounds[entry] = bound;
+    }
+
+    int getValue(int entry)
+    {
+        return this.values[entry];
+    }
+
+    int getDepth(int entry)
+    {
+        return this.depths[entry];
+    }
+
+    byte getBound(int entry)
+    {
+        return this.bounds[entry];
+    }
+
+    /**
+     * Empties the table
+     */
+    void clear()
+    {
+        Arrays.fill(this.bounds, (byte) 0);
+    }
+
+    /**
+     * @param key position hash
+     * @return entry the key maps to
+     */
+    private int index(long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> this.shift) & this.mask;
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.Arrays;
+
+/**
+ * Checks used by the tests, each throwing an AssertionError with a description of what didn't match
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+final class Assert
+{
+    private Assert()
+    {
+    }
+
+    static void assertTrue(String message, boolean condition)
+    {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    static void assertFalse(String message, boolean condition)
+    {
+        assertTrue(message, !condition);
+    }
+
+    static void assertEquals(String message, long expected, long actual)
+    {
+        if (expected != actual)
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+    }
+
+    static void assertEquals(String message, Object expected, Object actual)
+    {
+        if (expected == null ? actual != null : !expected.equals(actual))
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+    }
+
+    static void assertArrayEquals(String message, int[] expected, int[] actual)
+    {
+        if (!Arrays.equals(expected, actual))
+            throw new AssertionError(message + ": expected " + Arrays.toString(expected) + " but was "
+                    + Arrays.toString(actual));
+    }
+
+    static void assertThrows(String message, Class<? extends Throwable> expected, Action action)
+    {
+        try
+        {
+            action.run();
+        }
+        catch (Throwable e)
+        {
+            if (expected.isInstance(e))
+                return;
+            throw new AssertionError(message + ": expected " + expected.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(message + ": expected " + expected.getSimpleName() + " but nothing was thrown");
+    }
+
+    /**
+     * Code expected to throw
+     */
+    interface Action
+    {
+        void run() throws Exception;
+    }
+}
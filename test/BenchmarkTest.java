@@ -0,0 +1,98 @@
+import java.util.Random;
+
+/**
+ * Tests for the benchmark's brute force solver, and for the search against it on geometries other than the
+ * configured one
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class BenchmarkTest
+{
+    private static final int NOT_A_MOVE = Integer.MIN_VALUE;
+
+    public void testReferenceAgreesWithBruteForceOnBoard()
+    {
+        Random random = new Random(18);
+        for (int game = 0; game < 30; game++)
+        {
+            Board board = new Board();
+            Benchmark.Reference reference = new Benchmark.Reference(ILayout.ROWS, ILayout.COLUMNS, ILayout.WIN_CONDITION_LENGTH);
+            for (int move : Positions.play(board, random, 7 + random.nextInt(3)))
+                reference.move(move);
+            if (board.isGameOver())
+                continue;
+
+            int[] scores = reference.solveMoves();
+            Assert.assertEquals("score of\n" + board, Positions.solve(board, 0), scores[scores.length - 1]);
+            for (int move = 0; move < scores.length - 1; move++)
+            {
+                if (!board.isBlank(move))
+                {
+                    Assert.assertEquals("score of occupied cell " + move, NOT_A_MOVE, scores[move]);
+                    continue;
+                }
+                board.move(move);
+                Assert.assertEquals("score of " + move + " on\n" + board, Positions.solve(board, 1), scores[move]);
+                board.undoMove();
+            }
+        }
+    }
+
+    public void testKnownValues()
+    {
+        int[] scores = new Benchmark.Reference(3, 3, 3).solveMoves();
+        Assert.assertEquals("3x3x3 from the start", 0, scores[scores.length - 1]);
+
+        Benchmark.Reference reference = new Benchmark.Reference(3, 3, 3);
+        reference.move(4);
+        reference.move(1);
+        scores = reference.solveMoves();
+        Assert.assertTrue("3x3x3 after an edge reply to the centre", MiniMax.isWin(ILayout.ID.X, scores[scores.length - 1]));
+    }
+
+    public void testSearchAgreesWithReferenceOnSparseBoards()
+    {
+        Random random = new Random(19);
+        int[][] geometries = {{3, 3, 3}, {3, 4, 3}, {4, 3, 3}, {3, 5, 3}};
+        int compared = 0;
+        for (int game = 0; game < 60; game++)
+        {
+            int[] geometry = geometries[game % geometries.length];
+            int cells = geometry[0] * geometry[1];
+            SparseBoard board = new SparseBoard(geometry[0], geometry[1], geometry[2]);
+            Benchmark.Reference reference = new Benchmark.Reference(geometry[0], geometry[1], geometry[2]);
+            int[] played = Positions.play(board, random, Math.max(0, cells - 10) + random.nextInt(3));
+            for (int move : played)
+                reference.move(move);
+            // The sparse board only offers moves near the stones, so the reference is only comparable when those are all.
+            if (board.isGameOver() || board.getAvailableMoveCount() != cells - played.length)
+                continue;
+
+            int[] scores = reference.solveMoves();
+            int score = scores[scores.length - 1];
+            SearchResult result = new MiniMax(16).miniMax(board, cells);
+            Assert.assertTrue("proven " + result, result.isProven());
+            Assert.assertEquals("score of\n" + board, score, result.getScore());
+            Assert.assertEquals("score of the best move " + result.getBestMove() + " on\n" + board, score,
+                    scores[result.getBestMove()]);
+            compared++;
+        }
+        Assert.assertTrue("positions compared " + compared, compared > 20);
+    }
+
+    public void testIterativeDeepeningTimesEveryDepth()
+    {
+        MiniMax miniMax = new MiniMax(16);
+        Board board = new Board();
+        board.move(5);
+        miniMax.IterativeDeepeningMiniMax(board, 6);
+        SearchStatistics statistics = miniMax.getStatistics();
+        Assert.assertEquals("depths completed", 6, statistics.getIterations());
+        for (int depth = 2; depth <= 6; depth++)
+            Assert.assertTrue("time to depth " + depth, statistics.getTimeToDepth(depth) >= statistics.getTimeToDepth(depth - 1));
+        Assert.assertThrows("depth not completed", IllegalArgumentException.class, () -> statistics.getTimeToDepth(7));
+
+        miniMax.miniMax(board, 6);
+        Assert.assertEquals("depths completed by a fixed depth search", 0, miniMax.getStatistics().getIterations());
+    }
+}
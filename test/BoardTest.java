@@ -0,0 +1,91 @@
+import java.util.Random;
+
+/**
+ * Tests for the make/unmake move API of Board
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class BoardTest
+{
+    public void testUndoRestoresEveryPreviousState()
+    {
+        Random random = new Random(1);
+        for (int game = 0; game < 200; game++)
+        {
+            Board board = new Board();
+            int[] moves = new int[board.getAvailableMoveCount()];
+            String[] states = new String[board.getAvailableMoveCount() + 1];
+            int plies = 0;
+            states[0] = Positions.state(board);
+            while (!board.isGameOver())
+            {
+                int count = board.getAvailableMoves(moves);
+                Assert.assertTrue("move played", board.move(moves[random.nextInt(count)]));
+                states[++plies] = Positions.state(board);
+            }
+            for (; plies > 0; plies--)
+            {
+                board.undoMove();
+                Assert.assertEquals("state after undoing to ply " + (plies - 1), states[plies - 1], Positions.state(board));
+            }
+        }
+    }
+
+    public void testIncrementalStateMatchesReplay()
+    {
+        Random random = new Random(2);
+        for (int game = 0; game < 200; game++)
+        {
+            // Wander up and down the tree, then compare with a board that only ever moved forward.
+            Board board = new Board();
+            int[] played = new int[ILayout.ROWS * ILayout.COLUMNS];
+            int plies = 0;
+            for (int step = 0; step < 4; step++)
+            {
+                for (int move : Positions.play(board, random, 1 + random.nextInt(6)))
+                    played[plies++] = move;
+                for (int undo = random.nextInt(3); undo > 0 && plies > 0; undo--, plies--)
+                    board.undoMove();
+            }
+
+            Board replay = new Board();
+            for (int i = 0; i < plies; i++)
+                replay.move(played[i]);
+            Assert.assertEquals("state of game " + game, Positions.state(replay), Positions.state(board));
+        }
+    }
+
+    public void testMoveOnOccupiedCellChangesNothing()
+    {
+        Board board = new Board();
+        board.move(5);
+        String state = Positions.state(board);
+        Assert.assertFalse("occupied cell", board.move(5));
+        Assert.assertEquals("state", state, Positions.state(board));
+    }
+
+    public void testUndoWithoutMovesThrows()
+    {
+        Assert.assertThrows("undo on a new board", IllegalStateException.class, () -> new Board().undoMove());
+    }
+
+    public void testCloneIsIndependent()
+    {
+        Board board = Positions.random(new Random(3), 5);
+        String state = Positions.state(board);
+        Board clone = (Board) board.clone();
+        Assert.assertEquals("clone state", state, Positions.state(clone));
+
+        Positions.play(clone, new Random(4), 4);
+        clone.undoMove();
+        Assert.assertEquals("original after playing on the clone", state, Positions.state(board));
+    }
+
+    public void testChildrenSkipSymmetricPositions()
+    {
+        Board board = new Board();
+        // A corner, an edge and a centre cell, every other first move being a symmetry of one of them.
+        Assert.assertEquals("children of the empty board", 3, board.getChildren().size());
+        Assert.assertEquals("moves of the empty board", ILayout.ROWS * ILayout.COLUMNS, board.getAvailableMoves().size());
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.Random;
+
+/**
+ * Tests for telling when a player can no longer win, and for ending the game when neither can
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class DeadDrawTest
+{
+    /**
+     * @param board position
+     * @param player X or O
+     * @return true if some window holds none of the opponent's stones, counted from scratch
+     */
+    private static boolean canWin(Board board, ILayout.ID player)
+    {
+        long opponentStones = board.getStones(player == ILayout.ID.X ? ILayout.ID.O : ILayout.ID.X);
+        for (int[] window : Positions.windows())
+        {
+            boolean isOpen = true;
+            for (int cell : window)
+                isOpen &= (opponentStones & 1L << cell) == 0;
+            if (isOpen)
+                return true;
+        }
+        return false;
+    }
+
+    public void testWinnableWindowsMatchARecount()
+    {
+        Random random = new Random(23);
+        for (int game = 0; game < 300; game++)
+        {
+            Board board = new Board();
+            int plies = 0;
+            while (!board.isGameOver() || (plies > 0 && random.nextInt(4) == 0))
+            {
+                // Mostly forward, sometimes back, so that undo is checked too.
+                if (board.isGameOver() || (plies > 0 && random.nextInt(4) == 0))
+                {
+                    board.undoMove();
+                    plies--;
+                }
+                else
+                    plies += Positions.play(board, random, 1).length;
+
+                for (ILayout.ID player : new ILayout.ID[] {ILayout.ID.X, ILayout.ID.O})
+                    Assert.assertEquals(player + " can win on\n" + board, canWin(board, player) ? 1 : 0, board.canWin(player) ? 1 : 0);
+                boolean isDead = !canWin(board, ILayout.ID.X) && !canWin(board, ILayout.ID.O);
+                Assert.assertTrue("dead draws are over\n" + board, !isDead || board.isGameOver());
+            }
+        }
+    }
+
+    public void testDeadDrawEndsTheGameEarly()
+    {
+        Board board = new Board();
+        int[] moves = {13, 0, 8, 6, 10, 2, 5, 9, 12, 11, 3};
+        for (int move : moves)
+            board.move(move);
+        Assert.assertFalse("over before the last window is blocked", board.isGameOver());
+        Assert.assertTrue("X can still win", board.canWin(ILayout.ID.X));
+        Assert.assertFalse("O can still win", board.canWin(ILayout.ID.O));
+
+        // O blocks X's last window, the bottom row.
+        board.move(15);
+        Assert.assertTrue("over", board.isGameOver());
+        Assert.assertEquals("winner", ILayout.ID.Blank, board.getWinner());
+        Assert.assertEquals("empty cells left", 4, board.getAvailableMoveCount());
+        Assert.assertEquals("evaluation", 0, board.getEvaluation());
+
+        board.undoMove();
+        Assert.assertFalse("over after undo", board.isGameOver());
+        SearchResult result = new MiniMax().miniMax(board, 5);
+        Assert.assertTrue("proven " + result, result.isProven());
+        Assert.assertEquals("score", Positions.solve(board, 0), result.getScore());
+    }
+
+    public void testSparseBoardEndsDeadDrawsToo()
+    {
+        SparseBoard board = new SparseBoard(ILayout.ROWS, ILayout.COLUMNS, ILayout.WIN_CONDITION_LENGTH);
+        for (int move : new int[] {13, 0, 8, 6, 10, 2, 5, 9, 12, 11, 3, 15})
+            board.move(move);
+        Assert.assertTrue("over", board.isGameOver());
+        Assert.assertEquals("winner", ILayout.ID.Blank, board.getWinner());
+    }
+
+    public void testSearchKeepsASideThatCannotWinFromWinning()
+    {
+        Random random = new Random(24);
+        int checked = 0;
+        for (int game = 0; game < 5000 && checked < 20; game++)
+        {
+            Board board = Positions.random(random, 8 + random.nextInt(3));
+            if (board.isGameOver() || (board.canWin(ILayout.ID.X) && board.canWin(ILayout.ID.O)))
+                continue;
+
+            int value = Positions.solve(board, 0);
+            SearchResult result = new MiniMax(16).miniMax(board, ILayout.ROWS * ILayout.COLUMNS);
+            Assert.assertEquals("score of\n" + board, value, result.getScore());
+            for (ILayout.ID player : new ILayout.ID[] {ILayout.ID.X, ILayout.ID.O})
+                if (!board.canWin(player))
+                    Assert.assertFalse(player + " winning on\n" + board, MiniMax.isWin(player, result.getScore()));
+            checked++;
+        }
+        Assert.assertTrue("positions checked " + checked, checked > 5);
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests for the distributed solver, with most of the tasks answered beforehand from a tablebase so that
+ * the worker only has a few left to solve
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class DistributedSolverTest
+{
+    private static final int SPLIT_PLY = 4;
+    private static final int TASKS_LEFT = 3;
+
+    private static Tablebase tablebase;
+
+    /**
+     * @return the tablebase for the configured board, generated on first use
+     */
+    private static synchronized Tablebase getTablebase() throws InterruptedException
+    {
+        if (tablebase == null)
+            tablebase = new TablebaseGenerator().generate(4);
+        return tablebase;
+    }
+
+    /**
+     * @return a new empty work directory
+     */
+    private static Path newDirectory() throws IOException
+    {
+        return Files.createTempDirectory("mnk-solver");
+    }
+
+    /**
+     * Deletes a work directory and everything in it
+     * @param directory work directory
+     */
+    private static void delete(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+
+    /**
+     * @param directory directory
+     * @return the names of the files in the directory, in order
+     */
+    private static List<String> list(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory))
+        {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param task task file
+     * @return the position of the task
+     */
+    private static Board read(Path task) throws IOException
+    {
+        Board board = new Board();
+        for (String move : new String(Files.readAllBytes(task), StandardCharsets.UTF_8).trim().split(" "))
+            board.move(Integer.parseInt(move));
+        return board;
+    }
+
+    /**
+     * Answers every pending task but a few from the tablebase, as if other workers had solved them
+     * @param directory work directory
+     * @param left number of tasks to leave pending
+     */
+    private static void solveAllBut(Path directory, int left) throws IOException, InterruptedException
+    {
+        List<String> tasks = list(directory.resolve("pending"));
+        for (String task : tasks.subList(left, tasks.size()))
+        {
+            Path file = directory.resolve("pending").resolve(task);
+            String name = task.substring(0, task.length() - ".task".length());
+            int value = getTablebase().getValue(read(file));
+            Files.write(directory.resolve("done").resolve(name + ".result"), (value + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * @param directory work directory
+     * @param name task name
+     * @return the value recorded for the task
+     */
+    private static int readResult(Path directory, String name) throws IOException
+    {
+        Path result = directory.resolve("done").resolve(name + ".result");
+        return Integer.parseInt(new String(Files.readAllBytes(result), StandardCharsets.UTF_8).trim());
+    }
+
+    public void testSolvesTheRemainingTasksAndCombines() throws IOException, InterruptedException
+    {
+        Path directory = newDirectory();
+        try
+        {
+            DistributedSolver solver = new DistributedSolver(directory.toFile());
+            int tasks = solver.split(SPLIT_PLY);
+            Assert.assertEquals("tasks written", tasks, list(directory.resolve("pending")).size());
+            solveAllBut(directory, TASKS_LEFT);
+            Assert.assertThrows("combine before every task is done", IOException.class, solver::combine);
+
+            Map<String, Board> left = new HashMap<>();
+            for (String task : list(directory.resolve("pending")))
+                left.put(task.substring(0, task.length() - ".task".length()), read(directory.resolve("pending").resolve(task)));
+            Map<String, Integer> reported = new HashMap<>();
+            solver.setListener(new DistributedSolver.Listener()
+            {
+                @Override
+                public void solved(String task, int value)
+                {
+                    reported.put(task, value);
+                }
+            });
+            Assert.assertEquals("tasks solved", TASKS_LEFT, solver.work());
+            Assert.assertEquals("tasks reported", left.keySet(), reported.keySet());
+            for (Map.Entry<String, Board> task : left.entrySet())
+            {
+                Assert.assertEquals("value of " + task.getKey(), getTablebase().getValue(task.getValue()),
+                        readResult(directory, task.getKey()));
+                Assert.assertEquals("value reported for " + task.getKey(), readResult(directory, task.getKey()),
+                        (int) reported.get(task.getKey()));
+            }
+            Assert.assertEquals("pending", List.of(), list(directory.resolve("pending")));
+            Assert.assertEquals("claimed", List.of(), list(directory.resolve("claimed")));
+            Assert.assertEquals("checkpoints", List.of(), list(directory.resolve("checkpoints")));
+
+            int[] combined = solver.combine();
+            Assert.assertEquals("value of the empty board", Tablebase.DRAW, combined[0]);
+            Board board = new Board();
+            int[] moves = new int[board.getAvailableMoveCount()];
+            board.getAvailableMoves(moves);
+            for (int i = 0; i < moves.length; i++)
+            {
+                board.move(moves[i]);
+                Assert.assertEquals("value of first move " + moves[i], getTablebase().getValue(board), combined[i + 1]);
+                board.undoMove();
+            }
+        }
+        finally
+        {
+            delete(directory);
+        }
+    }
+
+    public void testResumesFromTheCheckpoint() throws IOException, InterruptedException
+    {
+        Path directory = newDirectory();
+        try
+        {
+            DistributedSolver solver = new DistributedSolver(directory.toFile());
+            solver.split(SPLIT_PLY);
+            solveAllBut(directory, 1);
+            String task = list(directory.resolve("pending")).get(0);
+            String name = task.substring(0, task.length() - ".task".length());
+            Board board = read(directory.resolve("pending").resolve(task));
+
+            // Claim that a child was already found to win for the player at turn, so the task can only be worth that,
+            // followed by a line cut short by a crash.
+            int[] moves = new int[board.getAvailableMoveCount()];
+            board.getAvailableMoves(moves);
+            int win = board.getTurn() == ILayout.ID.X ? Tablebase.X_WINS : Tablebase.O_WINS;
+            Files.write(directory.resolve("checkpoints").resolve(name + ".checkpoint"),
+                    (moves[0] + " " + win + "\n" + moves[1] + " 2").getBytes(StandardCharsets.UTF_8));
+
+            Assert.assertEquals("tasks solved", 1, solver.work());
+            Assert.assertEquals("value of " + name, win, readResult(directory, name));
+        }
+        finally
+        {
+            delete(directory);
+        }
+    }
+
+    public void testWorkDirectoryMustBeSplitOnce() throws IOException
+    {
+        Path directory = newDirectory();
+        try
+        {
+            DistributedSolver solver = new DistributedSolver(directory.toFile());
+            Assert.assertFalse("split", solver.isSplit());
+            Assert.assertThrows("work before the split", IOException.class, solver::work);
+            Assert.assertThrows("split ply", IllegalArgumentException.class, () -> solver.split(0));
+            solver.split(1);
+            Assert.assertTrue("split", new DistributedSolver(directory.toFile()).isSplit());
+            Assert.assertThrows("second split", IllegalStateException.class, () -> solver.split(1));
+        }
+        finally
+        {
+            delete(directory);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.Random;
+
+/**
+ * Tests for the bit mask endgame solver, on its own and inside the search
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class EndgameSolverTest
+{
+    /**
+     * @param board position
+     * @param value score from Positions.solve
+     * @return the same score on the endgame solver's scale, from the point of view of the player to move
+     */
+    private static int toSolverScore(ILayout board, int value)
+    {
+        if (value == 0)
+            return 0;
+        boolean xWins = value > 0;
+        int distance = xWins ? ILayout.MAX_EVALUATION - value : value - ILayout.MIN_EVALUATION;
+        int score = EndgameSolver.WIN - distance;
+        return xWins == (board.getTurn() == ILayout.ID.X) ? score : -score;
+    }
+
+    public void testScoresMatchBruteForce()
+    {
+        EndgameSolver solver = new EndgameSolver();
+        Random random = new Random(20);
+        for (int game = 0; game < 100; game++)
+        {
+            Board board = Positions.endgame(random);
+            int value = Positions.solve(board, 0);
+            int score = solver.solve(board);
+            Assert.assertEquals("score of\n" + board, toSolverScore(board, value), score);
+            Assert.assertEquals("distance", value == 0 ? -1 : EndgameSolver.WIN - Math.abs(score), EndgameSolver.getDistance(score));
+
+            board.move(solver.getBestMove());
+            Assert.assertEquals("value after the best move of\n" + board, value, Positions.solve(board, 1));
+        }
+    }
+
+    public void testSolvedPositionsAreCached()
+    {
+        EndgameSolver solver = new EndgameSolver();
+        Board board = Positions.endgame(new Random(21));
+        int score = solver.solve(board);
+        long nodes = solver.getNodes();
+        Assert.assertEquals("score the second time", score, solver.solve(board));
+        long again = solver.getNodes() - nodes;
+        Assert.assertTrue("nodes the second time " + again + " against " + nodes, again < nodes || nodes == 1);
+
+        solver.clear();
+        solver.solve(board);
+        Assert.assertEquals("nodes after clearing", 2 * nodes + again, solver.getNodes());
+    }
+
+    public void testSearchWithTheSolverMatchesBruteForce()
+    {
+        Random random = new Random(22);
+        long endgameSolves = 0;
+        for (int game = 0; game < 40; game++)
+        {
+            Board board = Positions.endgame(random);
+            int value = Positions.solve(board, 0);
+            MiniMax miniMax = new MiniMax(16);
+            miniMax.setEndgameSolver(12);
+            MiniMax iterative = new MiniMax(16);
+            iterative.setEndgameSolver(6);
+            int depth = ILayout.ROWS * ILayout.COLUMNS;
+
+            for (SearchResult result : new SearchResult[] {miniMax.miniMax(board, depth), iterative.IterativeDeepeningMiniMax(board, depth)})
+            {
+                Assert.assertTrue("proven " + result, result.isProven());
+                Assert.assertEquals("score of\n" + board, value, result.getScore());
+                board.move(result.getBestMove());
+                Assert.assertEquals("value after the best move of\n" + board, value, Positions.solve(board, 1));
+                board.undoMove();
+            }
+            endgameSolves += miniMax.getStatistics().getEndgameSolves();
+        }
+        Assert.assertTrue("positions handed to the solver", endgameSolves > 0);
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests for the engine pool's scheduling and load shedding
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class EnginePoolTest
+{
+    private static final long SLOW_TIME_LIMIT = 500;
+
+    /**
+     * @return a position where X, at turn, wins by playing 3
+     */
+    private static Board newWinningPosition()
+    {
+        Board board = new Board();
+        for (int move : new int[] {0, 8, 1, 9, 2, 13})
+            board.move(move);
+        return board;
+    }
+
+    public void testRequestsAreServed() throws Exception
+    {
+        EnginePool pool = new EnginePool(2, 8);
+        List<CompletableFuture<SearchResult>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            results.add(pool.submit(newWinningPosition(), 4, 5000, 0));
+        for (CompletableFuture<SearchResult> result : results)
+            Assert.assertEquals("best move", 3, result.get(10, TimeUnit.SECONDS).getBestMove());
+        // A worker counts a request once it has handed over its result, so only closing makes sure every one is counted.
+        pool.close();
+        Assert.assertEquals("completed", 6, pool.getCompleted());
+        Assert.assertEquals("shed", 0, pool.getShed());
+    }
+
+    public void testCallerMayKeepUsingTheBoard() throws Exception
+    {
+        try (EnginePool pool = new EnginePool(1, 8))
+        {
+            Board board = newWinningPosition();
+            CompletableFuture<SearchResult> result = pool.submit(board, 4, 5000, 0);
+            board.move(3);
+            board.undoMove();
+            board.move(15);
+            Assert.assertEquals("best move", 3, result.get(10, TimeUnit.SECONDS).getBestMove());
+        }
+    }
+
+    public void testHigherPriorityIsServedFirst() throws Exception
+    {
+        try (EnginePool pool = new EnginePool(1, 8))
+        {
+            // Keep the only worker busy while the others queue up.
+            CompletableFuture<SearchResult> busy = pool.submit(new Board(), 16, SLOW_TIME_LIMIT, 0);
+            while (pool.getQueued() > 0)
+                Thread.sleep(1);
+
+            List<Integer> served = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<Void>> results = new ArrayList<>();
+            for (int priority : new int[] {0, 2, 1})
+                results.add(pool.submit(newWinningPosition(), 2, 5000, priority).thenRun(() -> served.add(priority)));
+            busy.get(10, TimeUnit.SECONDS);
+            for (CompletableFuture<Void> result : results)
+                result.get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("order served", List.of(2, 1, 0), served);
+        }
+    }
+
+    public void testFullQueueShedsRequests() throws Exception
+    {
+        try (EnginePool pool = new EnginePool(1, 1))
+        {
+            CompletableFuture<SearchResult> busy = pool.submit(new Board(), 16, SLOW_TIME_LIMIT, 0);
+            while (pool.getQueued() > 0)
+                Thread.sleep(1);
+            CompletableFuture<SearchResult> queued = pool.submit(newWinningPosition(), 4, 5000, 0);
+
+            for (int i = 0; i < 3; i++)
+            {
+                CompletableFuture<SearchResult> shed = pool.submit(newWinningPosition(), 4, 5000, 0);
+                Assert.assertTrue("answered on arrival", shed.isDone());
+                Assert.assertEquals("best move", 3, shed.get().getBestMove());
+                Assert.assertEquals("depth", 1, shed.get().getDepth());
+            }
+            Assert.assertEquals("shed", 3, pool.getShed());
+            Assert.assertEquals("queued", 1, pool.getQueued());
+            busy.get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("best move", 3, queued.get(10, TimeUnit.SECONDS).getBestMove());
+        }
+    }
+
+    public void testLateRequestsAreSearchedShallower() throws Exception
+    {
+        try (EnginePool pool = new EnginePool(1, 8))
+        {
+            SearchResult result = pool.submit(new Board(), 16, 0, 0).get(10, TimeUnit.SECONDS);
+            Assert.assertTrue("legal move", result.getBestMove() >= 0);
+            Assert.assertEquals("degraded", 1, pool.getDegraded());
+        }
+    }
+
+    public void testRequestsAfterCloseFail() throws InterruptedException, TimeoutException
+    {
+        EnginePool pool = new EnginePool(1, 8);
+        pool.close();
+        CompletableFuture<SearchResult> result = pool.submit(newWinningPosition(), 4, 5000, 0);
+        Assert.assertTrue("failed", result.isCompletedExceptionally());
+        try
+        {
+            result.get(1, TimeUnit.SECONDS);
+        }
+        catch (ExecutionException e)
+        {
+            Assert.assertTrue("cause " + e.getCause(), e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    public void testEveryRequestCompletesWhenClosedUnderLoad() throws Exception
+    {
+        for (int round = 0; round < 5; round++)
+        {
+            EnginePool pool = new EnginePool(2, 4);
+            List<CompletableFuture<SearchResult>> results = Collections.synchronizedList(new ArrayList<>());
+            int[] maxQueued = new int[1];
+            Thread[] clients = new Thread[4];
+            for (int t = 0; t < clients.length; t++)
+            {
+                clients[t] = new Thread(() ->
+                {
+                    for (int i = 0; i < 25; i++)
+                    {
+                        results.add(pool.submit(new SparseBoard(7, 7, 5), 3, 50, i % 3));
+                        synchronized (maxQueued)
+                        {
+                            maxQueued[0] = Math.max(maxQueued[0], pool.getQueued());
+                        }
+                    }
+                });
+                clients[t].start();
+            }
+            Thread.sleep(round);
+            pool.close();
+            for (Thread client : clients)
+                client.join();
+
+            for (CompletableFuture<SearchResult> result : results)
+                try
+                {
+                    result.get(10, TimeUnit.SECONDS);
+                }
+                catch (ExecutionException e)
+                {
+                    Assert.assertTrue("cause " + e.getCause(), e.getCause() instanceof IllegalStateException);
+                }
+            Assert.assertTrue("queued " + maxQueued[0], maxQueued[0] <= 4);
+        }
+    }
+
+    public void testInvalidArguments()
+    {
+        Assert.assertThrows("workers", IllegalArgumentException.class, () -> new EnginePool(0, 1));
+        Assert.assertThrows("capacity", IllegalArgumentException.class, () -> new EnginePool(1, 0));
+        try (EnginePool pool = new EnginePool(1, 1))
+        {
+            Assert.assertThrows("depth", IllegalArgumentException.class, () -> pool.submit(new Board(), 0, 100, 0));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the evaluation cache and for pluggable evaluators
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class EvaluationCacheTest
+{
+    private static final long CORNERS = 1L | 1L << ILayout.COLUMNS - 1 | 1L << (ILayout.ROWS - 1) * ILayout.COLUMNS |
+            1L << ILayout.ROWS * ILayout.COLUMNS - 1;
+
+    /**
+     * @param key position hash
+     * @return an evaluation that can be told from the key, to check entries against
+     */
+    private static int evaluationOf(long key)
+    {
+        return (int) (key * 0x9E3779B97F4A7C15L >> 40);
+    }
+
+    /**
+     * Scores 100 for every corner X holds, the same on every symmetric position
+     * @param layout position
+     * @return evaluation of the position
+     */
+    private static int evaluateCorners(ILayout layout)
+    {
+        return 100 * Long.bitCount(((Board) layout).getStones(ILayout.ID.X) & CORNERS);
+    }
+
+    public void testStoreAndProbe()
+    {
+        EvaluationCache cache = new EvaluationCache(4);
+        Assert.assertEquals("miss", 0, cache.probe(42));
+        cache.store(42, -7);
+        cache.store(43, 0);
+        Assert.assertEquals("negative evaluation", -7, EvaluationCache.getEvaluation(cache.probe(42)));
+        Assert.assertTrue("zero evaluation found", cache.probe(43) != 0);
+        Assert.assertEquals("zero evaluation", 0, EvaluationCache.getEvaluation(cache.probe(43)));
+
+        cache.clear();
+        Assert.assertEquals("cleared", 0, cache.probe(42));
+        Assert.assertEquals("cleared", 0, cache.probe(43));
+        Assert.assertThrows("size", IllegalArgumentException.class, () -> new EvaluationCache(0));
+    }
+
+    public void testCollidingKeysNeverReadAnotherEvaluation()
+    {
+        EvaluationCache cache = new EvaluationCache(2);
+        for (long key = 1; key <= 1000; key++)
+        {
+            cache.store(key, evaluationOf(key));
+            for (long other = Math.max(1, key - 20); other <= key; other++)
+            {
+                long data = cache.probe(other);
+                if (data != 0)
+                    Assert.assertEquals("evaluation of " + other, evaluationOf(other), EvaluationCache.getEvaluation(data));
+            }
+            Assert.assertTrue("last stored found", cache.probe(key) != 0);
+        }
+    }
+
+    public void testConcurrentWritersNeverTearEntries() throws InterruptedException
+    {
+        EvaluationCache cache = new EvaluationCache(6);
+        Thread[] threads = new Thread[4];
+        AssertionError[] failure = new AssertionError[1];
+        for (int t = 0; t < threads.length; t++)
+        {
+            long seed = t;
+            threads[t] = new Thread(() ->
+            {
+                Random random = new Random(seed);
+                try
+                {
+                    for (int i = 0; i < 200000; i++)
+                    {
+                        long key = 1 + random.nextInt(1000);
+                        if (random.nextBoolean())
+                            cache.store(key, evaluationOf(key));
+                        else
+                        {
+                            long data = cache.probe(key);
+                            if (data != 0)
+                                Assert.assertEquals("evaluation of " + key, evaluationOf(key), EvaluationCache.getEvaluation(data));
+                        }
+                    }
+                }
+                catch (AssertionError e)
+                {
+                    synchronized (failure)
+                    {
+                        failure[0] = e;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        synchronized (failure)
+        {
+            if (failure[0] != null)
+                throw failure[0];
+        }
+    }
+
+    public void testCachedSearchFindsTheSameResult()
+    {
+        Random random = new Random(28);
+        for (int game = 0; game < 20; game++)
+        {
+            Board board = Positions.random(random, random.nextInt(6));
+            if (board.isGameOver())
+                continue;
+            int depth = 2 + random.nextInt(4);
+
+            MiniMax plain = new MiniMax(16);
+            SearchResult expected = plain.miniMax(board, depth);
+            MiniMax cached = new MiniMax(16);
+            cached.setEvaluationCache(new EvaluationCache(16));
+            SearchResult result = cached.miniMax(board, depth);
+
+            Assert.assertEquals("result on\n" + board, expected.toString(), result.toString());
+            Assert.assertEquals("evaluations", plain.getStatistics().getEvaluations(), cached.getStatistics().getEvaluations());
+        }
+    }
+
+    public void testEvaluatorIsAskedOnlyOnMisses()
+    {
+        AtomicLong calls = new AtomicLong();
+        MiniMax miniMax = new MiniMax(16);
+        miniMax.setEvaluator(layout ->
+        {
+            calls.incrementAndGet();
+            return Evaluator.LAYOUT.evaluate(layout);
+        });
+        miniMax.setEvaluationCache(new EvaluationCache(16));
+        Board board = new Board();
+        board.move(5);
+        miniMax.miniMax(board, 6);
+
+        SearchStatistics statistics = miniMax.getStatistics();
+        Assert.assertTrue("cache hits", statistics.getEvaluationCacheHits() > 0);
+        Assert.assertEquals("evaluator calls", statistics.getEvaluations() - statistics.getEvaluationCacheHits(), calls.get());
+    }
+
+    public void testCustomEvaluatorDrivesTheSearch()
+    {
+        // An evaluator that only likes X in a corner: X's best move is one, as nothing can be won in two plies.
+        MiniMax miniMax = new MiniMax(16);
+        miniMax.setEvaluator(EvaluationCacheTest::evaluateCorners);
+        SearchResult result = miniMax.miniMax(new Board(), 2);
+        Assert.assertEquals("corner", 1, Long.bitCount(CORNERS & 1L << result.getBestMove()));
+        Assert.assertEquals("score", 100, result.getScore());
+    }
+
+    public void testCachedSearchWithACustomEvaluatorFindsTheSameResult()
+    {
+        Random random = new Random(29);
+        EvaluationCache cache = new EvaluationCache(16);
+        for (int game = 0; game < 20; game++)
+        {
+            Board board = Positions.random(random, random.nextInt(6));
+            if (board.isGameOver())
+                continue;
+            int depth = 2 + random.nextInt(4);
+
+            MiniMax plain = new MiniMax(16);
+            plain.setEvaluator(EvaluationCacheTest::evaluateCorners);
+            SearchResult expected = plain.miniMax(board, depth);
+            // The cache is shared across the games, as engines with the same evaluator may share it.
+            MiniMax cached = new MiniMax(16);
+            cached.setEvaluator(EvaluationCacheTest::evaluateCorners);
+            cached.setEvaluationCache(cache);
+            SearchResult result = cached.miniMax(board, depth);
+
+            Assert.assertEquals("result on\n" + board, expected.toString(), result.toString());
+            Assert.assertTrue("evaluator calls", cached.getStatistics().getEvaluationCacheHits() <= cached.getStatistics().getEvaluations());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for the forced moves of the layouts and for the agent playing them without a search
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class ForcedMovesTest
+{
+    /**
+     * @param board position
+     * @return the forced moves, in increasing order
+     */
+    private static int[] getForcedMoves(ILayout board)
+    {
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int[] forced = Arrays.copyOf(moves, board.getForcedMoves(moves));
+        Arrays.sort(forced);
+        return forced;
+    }
+
+    public void testForcedMovesMatchTheThreatsOnTheBoard()
+    {
+        Random random = new Random(12);
+        for (int game = 0; game < 500; game++)
+        {
+            Board board = new Board();
+            int[] cells = Positions.cells(Positions.play(board, random, random.nextInt(ILayout.ROWS * ILayout.COLUMNS)));
+            if (board.isGameOver())
+            {
+                Assert.assertEquals("forced moves once the game is over", 0, getForcedMoves(board).length);
+                continue;
+            }
+
+            ILayout.ID player = board.getTurn();
+            int[] wins = Positions.getThreats(cells, player);
+            int[] losses = Positions.getThreats(cells, player == ILayout.ID.X ? ILayout.ID.O : ILayout.ID.X);
+            int[] forced = getForcedMoves(board);
+            if (wins.length > 0)
+            {
+                Assert.assertEquals("one winning move on\n" + board, 1, forced.length);
+                Assert.assertTrue("winning move " + forced[0] + " on\n" + board, Arrays.binarySearch(wins, forced[0]) >= 0);
+                Assert.assertTrue("wins", Positions.wins(board, forced[0]));
+            }
+            else
+                Assert.assertArrayEquals("blocks on\n" + board, losses, forced);
+        }
+    }
+
+    public void testSparseBoardForcesTheSameMoves()
+    {
+        Random random = new Random(13);
+        for (int game = 0; game < 500; game++)
+        {
+            Board board = new Board();
+            SparseBoard sparse = new SparseBoard(ILayout.ROWS, ILayout.COLUMNS, ILayout.WIN_CONDITION_LENGTH);
+            for (int move : Positions.play(board, random, random.nextInt(ILayout.ROWS * ILayout.COLUMNS)))
+                sparse.move(move);
+
+            int[] forced = getForcedMoves(board);
+            int[] sparseForced = getForcedMoves(sparse);
+            if (forced.length == 1 && Positions.wins(board, forced[0]))
+            {
+                Assert.assertEquals("one winning move on\n" + board, 1, sparseForced.length);
+                Assert.assertTrue("wins", Positions.wins(sparse, sparseForced[0]));
+            }
+            else
+                Assert.assertArrayEquals("forced moves on\n" + board, forced, sparseForced);
+        }
+    }
+
+    public void testAgentPlaysTheWinningMove()
+    {
+        // X to play, both players one stone short: X wins on 3 rather than blocking 11.
+        Board board = new Board();
+        for (int move : new int[] {0, 8, 1, 9, 2, 10})
+            board.move(move);
+        Assert.assertEquals("move", 3, MiniMaxAgent.play(board));
+        Assert.assertEquals("move", 3, MiniMaxAgent.play(board, 4));
+    }
+
+    public void testAgentPlaysTheOnlyBlock()
+    {
+        // O to play, X one stone short on the top row.
+        Board board = new Board();
+        for (int move : new int[] {0, 8, 1, 13, 2})
+            board.move(move);
+        Assert.assertArrayEquals("forced moves", new int[] {3}, getForcedMoves(board));
+        Assert.assertEquals("move", 3, MiniMaxAgent.play(board));
+    }
+}
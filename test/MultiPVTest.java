@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the multi-PV search, against the brute force value of every move
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class MultiPVTest
+{
+    public void testLinesAreTheBestMovesRanked()
+    {
+        Random random = new Random(25);
+        int depth = ILayout.ROWS * ILayout.COLUMNS;
+        for (int game = 0; game < 30; game++)
+        {
+            Board board = Positions.endgame(random);
+            boolean isMax = board.getTurn() == ILayout.ID.X;
+            int lines = 1 + random.nextInt(4);
+
+            // The value of every move, best first.
+            int[] moves = new int[board.getAvailableMoveCount()];
+            int count = board.getAvailableMoves(moves);
+            int[] values = new int[count];
+            for (int i = 0; i < count; i++)
+            {
+                board.move(moves[i]);
+                values[i] = Positions.solve(board, 1);
+                board.undoMove();
+            }
+            int[] ranked = Arrays.stream(values).map(value -> isMax ? -value : value).sorted()
+                    .map(value -> isMax ? -value : value).toArray();
+
+            List<SearchResult> results = new MiniMax(16).multiPV(board, depth, lines);
+            Assert.assertEquals("lines on\n" + board, Math.min(lines, count), results.size());
+            for (int i = 0; i < results.size(); i++)
+            {
+                SearchResult result = results.get(i);
+                Assert.assertTrue("proven " + result, result.isProven());
+                Assert.assertEquals("score of line " + i + " on\n" + board, ranked[i], result.getScore());
+                Assert.assertEquals("first move of the principal variation", result.getBestMove(), result.getPrincipalVariation()[0]);
+                for (int j = 0; j < i; j++)
+                    Assert.assertFalse("move listed twice", results.get(j).getBestMove() == result.getBestMove());
+
+                board.move(result.getBestMove());
+                Assert.assertEquals("value of move " + result.getBestMove() + " on\n" + board, result.getScore(),
+                        Positions.solve(board, 1));
+                board.undoMove();
+            }
+        }
+    }
+
+    public void testOneLineIsTheSearchResult()
+    {
+        Random random = new Random(26);
+        for (int game = 0; game < 20; game++)
+        {
+            Board board = Positions.random(random, random.nextInt(6));
+            if (board.isGameOver())
+                continue;
+            int depth = 1 + random.nextInt(5);
+            SearchResult expected = new MiniMax(16).miniMax(board, depth);
+            List<SearchResult> results = new MiniMax(16).multiPV(board, depth, 1);
+            Assert.assertEquals("lines", 1, results.size());
+            Assert.assertEquals("score on\n" + board, expected.getScore(), results.get(0).getScore());
+        }
+    }
+
+    public void testEveryMoveWhenAskedForMoreLinesThanMoves()
+    {
+        Board board = Positions.endgame(new Random(27));
+        List<SearchResult> results = new MiniMax(16).multiPV(board, 2, 50);
+        Assert.assertEquals("lines", board.getAvailableMoveCount(), results.size());
+        boolean isMax = board.getTurn() == ILayout.ID.X;
+        for (int i = 1; i < results.size(); i++)
+            Assert.assertTrue("ranked " + results, isMax ? results.get(i - 1).getScore() >= results.get(i).getScore() :
+                    results.get(i - 1).getScore() <= results.get(i).getScore());
+    }
+
+    public void testFinishedGameAndInvalidArguments()
+    {
+        Board board = new Board();
+        for (int move : new int[] {0, 4, 1, 5, 2, 8, 3})
+            board.move(move);
+        Assert.assertEquals("lines once the game is over", 0, new MiniMax().multiPV(board, 4, 3).size());
+        Assert.assertThrows("depth", IllegalArgumentException.class, () -> new MiniMax().multiPV(new Board(), 0, 3));
+        Assert.assertThrows("lines", IllegalArgumentException.class, () -> new MiniMax().multiPV(new Board(), 4, 0));
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.Random;
+
+/**
+ * Tests for the line window scores of the pattern table, and for Board's evaluation built from them
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class PatternTableTest
+{
+    private static final int BLANK = ILayout.ID.Blank.ordinal();
+    private static final int X = ILayout.ID.X.ordinal();
+    private static final int O = ILayout.ID.O.ordinal();
+
+    private final PatternTable patterns = new PatternTable(ILayout.WIN_CONDITION_LENGTH);
+
+    /**
+     * @param cells the left flank, the window's cells and the right flank
+     * @return pattern code of the cells
+     */
+    private int code(int... cells)
+    {
+        int code = 0;
+        for (int digit = 0; digit < cells.length; digit++)
+            code += cells[digit] * this.patterns.weight(digit);
+        return code;
+    }
+
+    public void testWindowsNobodyCanWinScoreNothing()
+    {
+        int[] codes = {
+                this.code(BLANK, BLANK, BLANK, BLANK, BLANK, BLANK),
+                this.code(X, BLANK, BLANK, BLANK, BLANK, O),
+                this.code(BLANK, X, O, BLANK, BLANK, BLANK),
+                this.code(BLANK, X, X, X, O, BLANK),
+        };
+        for (int code : codes)
+        {
+            Assert.assertEquals("score with X to move of " + code, 0, this.patterns.getScoreXToMove(code));
+            Assert.assertEquals("score with O to move of " + code, 0, this.patterns.getScoreOToMove(code));
+        }
+    }
+
+    public void testScoresAreSymmetricBetweenPlayers()
+    {
+        int size = this.patterns.weight(ILayout.WIN_CONDITION_LENGTH + 2);
+        for (int code = 0; code < size; code++)
+        {
+            // Swap X and O everywhere in the pattern.
+            int swapped = 0;
+            for (int digit = 0; digit < ILayout.WIN_CONDITION_LENGTH + 2; digit++)
+            {
+                int cell = code / this.patterns.weight(digit) % 3;
+                swapped += (cell == X ? O : cell == O ? X : BLANK) * this.patterns.weight(digit);
+            }
+            Assert.assertEquals("score of " + code, this.patterns.getScoreXToMove(code), -this.patterns.getScoreOToMove(swapped));
+            Assert.assertEquals("score of " + code, this.patterns.getScoreOToMove(code), -this.patterns.getScoreXToMove(swapped));
+        }
+    }
+
+    public void testMoreStonesAndOpenFlanksScoreMore()
+    {
+        int one = this.patterns.getScoreOToMove(this.code(BLANK, X, BLANK, BLANK, BLANK, BLANK));
+        int two = this.patterns.getScoreOToMove(this.code(BLANK, X, X, BLANK, BLANK, BLANK));
+        int three = this.patterns.getScoreOToMove(this.code(BLANK, X, X, X, BLANK, BLANK));
+        int closedTwo = this.patterns.getScoreOToMove(this.code(O, X, X, BLANK, BLANK, O));
+        Assert.assertTrue("one stone " + one, one > 0);
+        Assert.assertTrue("two stones " + two + " over one " + one, two > one);
+        Assert.assertTrue("three stones " + three + " over two " + two, three > two);
+        Assert.assertTrue("open two " + two + " over closed two " + closedTwo, two > closedTwo);
+        Assert.assertTrue("three at turn", this.patterns.getScoreXToMove(this.code(BLANK, X, X, X, BLANK, BLANK)) > three);
+    }
+
+    public void testThreats()
+    {
+        int code = this.code(O, X, BLANK, X, X, BLANK);
+        Assert.assertEquals("blank cell", 2, this.patterns.getThreat(code));
+        Assert.assertEquals("owner", X, this.patterns.getThreatOwner(code));
+
+        code = this.code(BLANK, O, O, O, BLANK, X);
+        Assert.assertEquals("blank cell", 4, this.patterns.getThreat(code));
+        Assert.assertEquals("owner", O, this.patterns.getThreatOwner(code));
+
+        Assert.assertEquals("two short", 0, this.patterns.getThreat(this.code(BLANK, X, X, BLANK, BLANK, BLANK)));
+        Assert.assertEquals("blocked", 0, this.patterns.getThreat(this.code(BLANK, X, X, X, O, BLANK)));
+        Assert.assertEquals("complete", 0, this.patterns.getThreat(this.code(BLANK, X, X, X, X, BLANK)));
+    }
+
+    public void testBoardEvaluationMatchesARecount()
+    {
+        Random random = new Random(10);
+        for (int game = 0; game < 300; game++)
+        {
+            Board board = new Board();
+            int[] moves = Positions.play(board, random, random.nextInt(ILayout.ROWS * ILayout.COLUMNS));
+            if (!board.isGameOver())
+                Assert.assertEquals("evaluation of\n" + board, this.evaluate(board, moves), board.getEvaluation());
+        }
+    }
+
+    /**
+     * Scores every window of the board from scratch
+     * @param board position, not over
+     * @param moves moves played to reach the position, X first
+     * @return the evaluation Board should have kept up to date
+     */
+    private int evaluate(Board board, int[] moves)
+    {
+        int[] stones = Positions.cells(moves);
+        int length = ILayout.WIN_CONDITION_LENGTH;
+        long evaluation = 0;
+        for (int[] direction : new int[][] {{1, 0}, {0, 1}, {1, 1}, {-1, 1}})
+            for (int y = 0; y < ILayout.ROWS; y++)
+                for (int x = 0; x < ILayout.COLUMNS; x++)
+                {
+                    int endX = x + (length - 1) * direction[0];
+                    int endY = y + (length - 1) * direction[1];
+                    if (endX < 0 || endX >= ILayout.COLUMNS || endY >= ILayout.ROWS)
+                        continue;
+
+                    int[] cells = new int[length + 2];
+                    for (int digit = 0; digit < length + 2; digit++)
+                    {
+                        int cellX = x + (digit - 1) * direction[0];
+                        int cellY = y + (digit - 1) * direction[1];
+                        if (cellX < 0 || cellX >= ILayout.COLUMNS || cellY < 0 || cellY >= ILayout.ROWS)
+                            cells[digit] = X;
+                        else
+                            cells[digit] = stones[cellY * ILayout.COLUMNS + cellX];
+                    }
+                    int code = this.code(cells);
+                    evaluation += board.getTurn() == ILayout.ID.X ? this.patterns.getScoreXToMove(code)
+                            : this.patterns.getScoreOToMove(code);
+                }
+        return (int) Math.max(ILayout.MIN_EVALUATION + ILayout.MAX_WIN_DISTANCE + 1,
+                Math.min(ILayout.MAX_EVALUATION - ILayout.MAX_WIN_DISTANCE - 1, evaluation));
+    }
+}
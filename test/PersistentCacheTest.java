@@ -0,0 +1,214 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+/**
+ * Tests for the memory mapped search cache
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class PersistentCacheTest
+{
+    /**
+     * @return path of a file that doesn't exist yet, deleted when the tests finish
+     */
+    private static File newFile() throws IOException
+    {
+        File file = File.createTempFile("mnk", ".cache");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    public void testStoredResultsSurviveReopening() throws IOException
+    {
+        File file = newFile();
+        try (PersistentCache cache = new PersistentCache(file, 10))
+        {
+            Assert.assertEquals("miss", 0, cache.probe(42));
+            cache.store(42, -7, 3, TranspositionTable.LOWER_BOUND);
+            cache.store(43, ILayout.MAX_EVALUATION - 5, PersistentCache.EXHAUSTIVE_DEPTH, TranspositionTable.EXACT);
+        }
+
+        // The size in the file wins over the one asked for.
+        try (PersistentCache cache = new PersistentCache(file, 12))
+        {
+            long data = cache.probe(42);
+            Assert.assertEquals("value", -7, PersistentCache.getValue(data));
+            Assert.assertEquals("depth", 3, PersistentCache.getDepth(data));
+            Assert.assertEquals("bound", TranspositionTable.LOWER_BOUND, PersistentCache.getBound(data));
+
+            data = cache.probe(43);
+            Assert.assertEquals("value", ILayout.MAX_EVALUATION - 5, PersistentCache.getValue(data));
+            Assert.assertEquals("depth", PersistentCache.EXHAUSTIVE_DEPTH, PersistentCache.getDepth(data));
+            Assert.assertEquals("bound", TranspositionTable.EXACT, PersistentCache.getBound(data));
+        }
+        Assert.assertEquals("file size", 64 + 16 * 1024, file.length());
+    }
+
+    public void testDeeperResultsOfOtherPositionsAreKept() throws IOException
+    {
+        try (PersistentCache cache = new PersistentCache(newFile(), 1))
+        {
+            // Two entries only, so three keys share at least one of them.
+            long[] keys = {1, 2, 3};
+            for (long key : keys)
+                cache.store(key, (int) key, 10, TranspositionTable.EXACT);
+            int found = 0;
+            for (long key : keys)
+            {
+                long data = cache.probe(key);
+                if (data != 0)
+                {
+                    found++;
+                    Assert.assertEquals("value of " + key, key, PersistentCache.getValue(data));
+                }
+            }
+            Assert.assertTrue("kept " + found, found >= 1 && found <= 2);
+
+            for (long key : keys)
+                cache.store(key + 100, 0, 5, TranspositionTable.EXACT);
+            for (long key : keys)
+                Assert.assertEquals("shallower result of " + (key + 100), 0, cache.probe(key + 100));
+
+            // The same position is always replaced.
+            for (long key : keys)
+                if (cache.probe(key) != 0)
+                {
+                    cache.store(key, 99, 1, TranspositionTable.UPPER_BOUND);
+                    Assert.assertEquals("replaced value", 99, PersistentCache.getValue(cache.probe(key)));
+                }
+        }
+    }
+
+    public void testTornEntriesReadAsMisses() throws IOException
+    {
+        File file = newFile();
+        try (PersistentCache cache = new PersistentCache(file, 8))
+        {
+            for (long key = 1; key <= 100; key++)
+                cache.store(key, (int) key, 1, TranspositionTable.EXACT);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw"))
+        {
+            // Flip a bit in every stored result, leaving the hash check as it was.
+            for (long offset = 64; offset < raw.length(); offset += 16)
+            {
+                raw.seek(offset + 8);
+                long data = raw.readLong();
+                raw.seek(offset + 8);
+                raw.writeLong(data == 0 ? 0 : data ^ 1L << 40);
+            }
+        }
+        try (PersistentCache cache = new PersistentCache(file, 8))
+        {
+            for (long key = 1; key <= 100; key++)
+                Assert.assertEquals("torn entry of " + key, 0, cache.probe(key));
+        }
+    }
+
+    public void testUnfinishedFilesAreStartedAgain() throws IOException
+    {
+        File file = newFile();
+        // What a crash between creating the file and writing its header leaves behind: zeros, or nothing.
+        for (long length : new long[] {64 + 16 * 1024, 10, 0})
+        {
+            try (RandomAccessFile raw = new RandomAccessFile(file, "rw"))
+            {
+                raw.setLength(length);
+            }
+            try (PersistentCache cache = new PersistentCache(file, 10))
+            {
+                cache.store(42, 7, 3, TranspositionTable.EXACT);
+            }
+            try (PersistentCache cache = new PersistentCache(file, 10))
+            {
+                Assert.assertEquals("value after starting a " + length + " byte file again", 7,
+                        PersistentCache.getValue(cache.probe(42)));
+            }
+        }
+    }
+
+    public void testOtherFilesAreRejected() throws IOException
+    {
+        File file = newFile();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw"))
+        {
+            raw.setLength(64 + 16 * 1024);
+            raw.writeLong(123);
+        }
+        Assert.assertThrows("wrong magic number", IOException.class, () -> new PersistentCache(file, 10));
+        Assert.assertThrows("size", IllegalArgumentException.class, () -> new PersistentCache(newFile(), 0));
+    }
+
+    public void testSearchWarmStartsFromTheCache() throws IOException
+    {
+        File file = newFile();
+        Random random = new Random(14);
+        long coldNodes = 0;
+        long warmNodes = 0;
+        for (int game = 0; game < 10; game++)
+        {
+            Board board = Positions.endgame(random);
+            SearchResult cold;
+            SearchResult warm;
+            try (PersistentCache cache = new PersistentCache(file, 16))
+            {
+                MiniMax miniMax = new MiniMax(16);
+                miniMax.setPersistentCache(cache);
+                cold = miniMax.miniMax(board, ILayout.ROWS * ILayout.COLUMNS);
+            }
+            try (PersistentCache cache = new PersistentCache(file, 16))
+            {
+                MiniMax miniMax = new MiniMax(16);
+                miniMax.setPersistentCache(cache);
+                warm = miniMax.miniMax(board, ILayout.ROWS * ILayout.COLUMNS);
+            }
+
+            Assert.assertEquals("score of\n" + board, Positions.solve(board, 0), warm.getScore());
+            Assert.assertEquals("score", cold.getScore(), warm.getScore());
+            coldNodes += cold.getNodes();
+            warmNodes += warm.getNodes();
+        }
+        Assert.assertTrue("nodes " + warmNodes + " against " + coldNodes, warmNodes < coldNodes);
+    }
+
+    public void testSearchesSetUpDifferentlyShareOnlyWhatHoldsForBoth() throws IOException
+    {
+        Board board = new Board();
+        board.move(5);
+        // Deep enough for positions below the root to reach the cache.
+        int depth = 8;
+        MiniMax[] setups = {new MiniMax(16), new MiniMax(16), new MiniMax(16)};
+        setups[1].setLateMoveReductions(true);
+        setups[1].setFutilityPruning(true);
+        setups[2].setEvaluator(layout -> -layout.getEvaluation());
+        int[] scores = new int[setups.length];
+        for (int i = 0; i < setups.length; i++)
+            scores[i] = setups[i].miniMax(board, depth).getScore();
+        Assert.assertTrue("setups that disagree", scores[0] != scores[1] && scores[0] != scores[2]);
+
+        // Each setup fills a cache, and every setup must still find its own score with it.
+        for (int writer = 0; writer < setups.length; writer++)
+        {
+            File file = newFile();
+            try (PersistentCache cache = new PersistentCache(file, 16))
+            {
+                setups[writer].setPersistentCache(cache);
+                setups[writer].miniMax(board, depth);
+                setups[writer].setPersistentCache(null);
+            }
+            try (PersistentCache cache = new PersistentCache(file, 16))
+            {
+                for (int reader = 0; reader < setups.length; reader++)
+                {
+                    setups[reader].setPersistentCache(cache);
+                    Assert.assertEquals("score of setup " + reader + " after setup " + writer, scores[reader],
+                            setups[reader].miniMax(board, depth).getScore());
+                    setups[reader].setPersistentCache(null);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Positions and position state shared by the tests
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+final class Positions
+{
+    private Positions()
+    {
+    }
+
+    /**
+     * Plays random moves on a new board
+     * @param random source of the moves
+     * @param plies number of moves to play, fewer if the game ends before
+     * @return the board
+     */
+    static Board random(Random random, int plies)
+    {
+        Board board = new Board();
+        play(board, random, plies);
+        return board;
+    }
+
+    /**
+     * Plays random moves on a board
+     * @param board board to play on
+     * @param random source of the moves
+     * @param plies number of moves to play, fewer if the game ends before
+     * @return the moves played
+     */
+    static int[] play(ILayout board, Random random, int plies)
+    {
+        int[] played = new int[plies];
+        int count = 0;
+        while (count < plies && !board.isGameOver())
+        {
+            // Sparse boards offer more moves as stones are placed.
+            int[] moves = new int[board.getAvailableMoveCount()];
+            int available = board.getAvailableMoves(moves);
+            played[count] = moves[random.nextInt(available)];
+            board.move(played[count++]);
+        }
+        return Arrays.copyOf(played, count);
+    }
+
+    /**
+     * @param board position
+     * @return everything the layout tells about the position, so that two layouts in the same state give the same string
+     */
+    static String state(ILayout board)
+    {
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int[] available = Arrays.copyOf(moves, board.getAvailableMoves(moves));
+        int[] forced = Arrays.copyOf(moves, board.getForcedMoves(moves));
+        Arrays.sort(available);
+        Arrays.sort(forced);
+        // Any winning move may be the one offered, depending on the order of the available moves.
+        String forcedMoves = forced.length == 1 && wins(board, forced[0]) ? "a win" : Arrays.toString(forced);
+        return board + "\nturn " + board.getTurn() + " over " + board.isGameOver()
+                + (board.isGameOver() ? " winner " + board.getWinner() : "")
+                + " hash " + board.getHash() + " canonical " + board.getCanonicalHash()
+                + " evaluation " + board.getEvaluation()
+                + " canWin " + board.canWin(ILayout.ID.X) + "/" + board.canWin(ILayout.ID.O)
+                + " moves " + Arrays.toString(available) + " forced " + forcedMoves;
+    }
+
+    /**
+     * @param board position, left unchanged
+     * @param move move to try
+     * @return true if the move wins the game for the player at turn
+     */
+    static boolean wins(ILayout board, int move)
+    {
+        ILayout.ID player = board.getTurn();
+        board.move(move);
+        boolean wins = board.isGameOver() && board.getWinner() == player;
+        board.undoMove();
+        return wins;
+    }
+
+    /**
+     * Searches every line to the end of the game, with nothing but the rules
+     * @param board position, left unchanged
+     * @param ply number of moves played since the root
+     * @return the game theoretical value from X's point of view, on the search's scale: MAX_EVALUATION less the
+     * number of plies from the root to the end of the game for an X win, MIN_EVALUATION plus them for an O win
+     */
+    static int solve(ILayout board, int ply)
+    {
+        if (board.isGameOver())
+        {
+            ILayout.ID winner = board.getWinner();
+            return winner == ILayout.ID.X ? ILayout.MAX_EVALUATION - ply
+                    : winner == ILayout.ID.O ? ILayout.MIN_EVALUATION + ply : 0;
+        }
+
+        boolean isMax = board.getTurn() == ILayout.ID.X;
+        int best = isMax ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int[] moves = new int[board.getAvailableMoveCount()];
+        int count = board.getAvailableMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            board.move(moves[i]);
+            int value = solve(board, ply + 1);
+            board.undoMove();
+            best = isMax ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    /**
+     * @param random source of the moves
+     * @return a 4x4x4 position a few moves away from the end of the game, small enough to solve by brute force
+     */
+    static Board endgame(Random random)
+    {
+        while (true)
+        {
+            Board board = random(random, 7 + random.nextInt(3));
+            if (!board.isGameOver())
+                return board;
+        }
+    }
+
+    /**
+     * @param moves moves played on a new board, X first
+     * @return the ordinal of the ID on every cell once the moves are played
+     */
+    static int[] cells(int[] moves)
+    {
+        int[] cells = new int[ILayout.ROWS * ILayout.COLUMNS];
+        Arrays.fill(cells, ILayout.ID.Blank.ordinal());
+        for (int i = 0; i < moves.length; i++)
+            cells[moves[i]] = (i % 2 == 0 ? ILayout.ID.X : ILayout.ID.O).ordinal();
+        return cells;
+    }
+
+    /**
+     * @return the cells of every window of WIN_CONDITION_LENGTH cells in a row, in any direction, on the configured board
+     */
+    static int[][] windows()
+    {
+        int length = ILayout.WIN_CONDITION_LENGTH;
+        ArrayList<int[]> windows = new ArrayList<>();
+        for (int[] direction : new int[][] {{1, 0}, {0, 1}, {1, 1}, {-1, 1}})
+            for (int y = 0; y < ILayout.ROWS; y++)
+                for (int x = 0; x < ILayout.COLUMNS; x++)
+                {
+                    int endX = x + (length - 1) * direction[0];
+                    int endY = y + (length - 1) * direction[1];
+                    if (endX < 0 || endX >= ILayout.COLUMNS || endY >= ILayout.ROWS)
+                        continue;
+
+                    int[] cells = new int[length];
+                    for (int i = 0; i < length; i++)
+                        cells[i] = (y + i * direction[1]) * ILayout.COLUMNS + x + i * direction[0];
+                    windows.add(cells);
+                }
+        return windows.toArray(new int[0][]);
+    }
+
+    /**
+     * @param cells the ordinal of the ID on every cell, as given by cells(int[])
+     * @param player X or O
+     * @return the cells that would complete a window for the player, in increasing order
+     */
+    static int[] getThreats(int[] cells, ILayout.ID player)
+    {
+        TreeSet<Integer> threats = new TreeSet<>();
+        for (int[] window : windows())
+        {
+            int stones = 0;
+            int blank = -1;
+            for (int cell : window)
+                if (cells[cell] == player.ordinal())
+                    stones++;
+                else if (cells[cell] == ILayout.ID.Blank.ordinal())
+                    blank = cell;
+            if (stones == window.length - 1 && blank >= 0)
+                threats.add(blank);
+        }
+        return threats.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
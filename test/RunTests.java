@@ -0,0 +1,65 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Runs every test method (public, no arguments, named test...) of the test classes, on a new instance of its
+ * class, and exits with an error if any of them fails
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class RunTests
+{
+    private static final Class<?>[] TESTS = {
+            BoardTest.class,
+            SearchResultTest.class,
+            TablebaseTest.class,
+            PatternTableTest.class,
+            SelectiveSearchTest.class,
+            ForcedMovesTest.class,
+            PersistentCacheTest.class,
+            SparseBoardTest.class,
+            EnginePoolTest.class,
+            SearchTracerTest.class,
+            BenchmarkTest.class,
+            DistributedSolverTest.class,
+            EndgameSolverTest.class,
+            DeadDrawTest.class,
+            MultiPVTest.class,
+            EvaluationCacheTest.class,
+    };
+
+    public static void main(String[] args) throws ReflectiveOperationException
+    {
+        int passed = 0;
+        int failed = 0;
+        for (Class<?> test : TESTS)
+            for (Method method : test.getDeclaredMethods())
+            {
+                if (!method.getName().startsWith("test") || method.getParameterCount() != 0
+                        || !Modifier.isPublic(method.getModifiers()))
+                    continue;
+                if (args.length > 0 && !test.getSimpleName().equals(args[0]))
+                    continue;
+
+                long start = System.nanoTime();
+                try
+                {
+                    method.invoke(test.getDeclaredConstructor().newInstance());
+                    passed++;
+                    System.out.printf("ok   %s.%s (%d ms)%n", test.getSimpleName(), method.getName(),
+                            (System.nanoTime() - start) / 1000000);
+                }
+                catch (InvocationTargetException e)
+                {
+                    failed++;
+                    System.out.printf("FAIL %s.%s%n", test.getSimpleName(), method.getName());
+                    e.getCause().printStackTrace(System.out);
+                }
+            }
+
+        System.out.println(passed + " passed, " + failed + " failed");
+        if (failed > 0)
+            System.exit(1);
+    }
+}
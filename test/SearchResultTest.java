@@ -0,0 +1,84 @@
+import java.util.Random;
+
+/**
+ * Tests for the move, score and principal variation returned by a search
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SearchResultTest
+{
+    public void testFullDepthSearchIsProvenAndExact()
+    {
+        Random random = new Random(5);
+        for (int game = 0; game < 40; game++)
+        {
+            Board board = Positions.endgame(random);
+            int expected = Positions.solve(board, 0);
+            SearchResult result = new MiniMax(16).miniMax(board, ILayout.ROWS * ILayout.COLUMNS);
+
+            Assert.assertTrue("proven " + result, result.isProven());
+            Assert.assertEquals("score of\n" + board, expected, result.getScore());
+            board.move(result.getBestMove());
+            Assert.assertEquals("value after the best move of\n" + board, expected, Positions.solve(board, 1));
+        }
+    }
+
+    public void testPrincipalVariationIsLegalAndStartsWithTheBestMove()
+    {
+        Random random = new Random(6);
+        for (int game = 0; game < 40; game++)
+        {
+            Board board = Positions.random(random, random.nextInt(8));
+            if (board.isGameOver())
+                continue;
+            SearchResult result = new MiniMax(16).miniMax(board, 1 + random.nextInt(5));
+            int[] principalVariation = result.getPrincipalVariation();
+
+            Assert.assertTrue("principal variation of " + result, principalVariation.length > 0);
+            Assert.assertEquals("first move", result.getBestMove(), principalVariation[0]);
+            Assert.assertTrue("no longer than the depth", principalVariation.length <= result.getDepth());
+            for (int move : principalVariation)
+            {
+                Assert.assertFalse("game over before " + move + " in " + result, board.isGameOver());
+                Assert.assertTrue("legal move " + move + " in " + result, board.move(move));
+            }
+        }
+    }
+
+    public void testDistanceOfAWin()
+    {
+        // X to play, with three in a row on the top row: a win on the next move.
+        Board board = new Board();
+        for (int move : new int[] {0, 4, 1, 5, 2, 8})
+            board.move(move);
+        SearchResult result = new MiniMax().miniMax(board, 4);
+        Assert.assertEquals("best move", 3, result.getBestMove());
+        Assert.assertEquals("score", ILayout.MAX_EVALUATION - 1, result.getScore());
+        Assert.assertEquals("distance", 1, result.getDistance());
+        Assert.assertTrue("proven", result.isProven());
+    }
+
+    public void testFinishedGame()
+    {
+        Board board = new Board();
+        for (int move : new int[] {0, 4, 1, 5, 2, 8, 3})
+            board.move(move);
+        SearchResult result = new MiniMax().miniMax(board, 4);
+        Assert.assertEquals("best move", -1, result.getBestMove());
+        Assert.assertEquals("score", ILayout.MAX_EVALUATION, result.getScore());
+        Assert.assertEquals("distance", 0, result.getDistance());
+        Assert.assertEquals("principal variation", 0, result.getPrincipalVariation().length);
+    }
+
+    public void testDepthMustBePositive()
+    {
+        Assert.assertThrows("depth 0", IllegalArgumentException.class, () -> new MiniMax().miniMax(new Board(), 0));
+    }
+
+    public void testPrincipalVariationIsACopy()
+    {
+        SearchResult result = new MiniMax().miniMax(new Board(), 2);
+        result.getPrincipalVariation()[0] = -5;
+        Assert.assertEquals("first move", result.getBestMove(), result.getPrincipalVariation()[0]);
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests for the search trace recorder and its analyzer
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SearchTracerTest
+{
+    /**
+     * @return path of a new empty file, deleted when the tests finish
+     */
+    private static File newFile() throws IOException
+    {
+        File file = File.createTempFile("mnk", ".trace");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * @param file trace file
+     * @return the analyzer's summary of the trace
+     */
+    private static String summarise(File file) throws IOException
+    {
+        TraceAnalyzer analyzer = new TraceAnalyzer(1);
+        analyzer.read(file);
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(summary, true, StandardCharsets.UTF_8));
+        try
+        {
+            analyzer.print(10);
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        return summary.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param summary analyzer's summary
+     * @param line line the summary should hold
+     */
+    private static void assertContains(String summary, String line)
+    {
+        Assert.assertTrue("summary holding \"" + line + "\":\n" + summary, summary.contains(line));
+    }
+
+    public void testRecordsAreSummarised() throws IOException
+    {
+        File file = newFile();
+        try (SearchTracer tracer = new SearchTracer(file))
+        {
+            tracer.start(1, 2);
+            tracer.enter(1, 0, 2, -10, 10);
+            tracer.probe(1, 0, 2, false);
+            // Six moves take two records; the third one tried refutes the position, and is the best.
+            tracer.moves(1, 0, new int[] {5, 6, 7, 8, 9, 10}, 6);
+            tracer.enter(2, 1, 1, -10, 10);
+            tracer.probe(2, 1, 1, true);
+            tracer.exit(2, 1, 1, 0, -1, -1, 0);
+            tracer.reSearch(1, 0, 2, 6, 1);
+            tracer.exit(1, 0, 2, 3, 7, 2, 6);
+        }
+
+        String summary = summarise(file);
+        assertContains(summary, "Searches: 1, nodes: 2, nodes searched past the table: 2");
+        assertContains(summary, "Transposition table hits: 1 of 2 probes (50.0%)");
+        assertContains(summary, "Cutoffs: 1 of 2 positions searched");
+        assertContains(summary, "on move 3: 1 (100.0%)");
+        assertContains(summary, "Best move by its place in the move order: 1 positions");
+        assertContains(summary, "move 3: 1 (100.0%)");
+        assertContains(summary, "2 moves over 1 late cutoffs, tried 5 before 7");
+        assertContains(summary, "Re-searches after a reduced search: 1");
+    }
+
+    public void testSearchTraceCountsEveryNode() throws IOException
+    {
+        File file = newFile();
+        SearchResult result;
+        try (SearchTracer tracer = new SearchTracer(file))
+        {
+            MiniMax miniMax = new MiniMax();
+            miniMax.setTracer(tracer);
+            miniMax.setLateMoveReductions(true);
+            Board board = new Board();
+            board.move(5);
+            result = miniMax.miniMax(board, 6);
+        }
+
+        String summary = summarise(file);
+        assertContains(summary, "Searches: 1, nodes: " + result.getNodes() + ",");
+        Assert.assertFalse("best moves found on the move order:\n" + summary,
+                summary.contains("Best move by its place in the move order: 0 positions"));
+    }
+
+    public void testOtherFilesAreRejected() throws IOException
+    {
+        File file = newFile();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw"))
+        {
+            raw.writeLong(42);
+        }
+        Assert.assertThrows("wrong magic number", IOException.class, () -> new TraceAnalyzer(1).read(file));
+
+        try (SearchTracer tracer = new SearchTracer(file))
+        {
+            tracer.start(1, 2);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw"))
+        {
+            raw.setLength(raw.length() - 1);
+        }
+        Assert.assertThrows("truncated", IOException.class, () -> new TraceAnalyzer(1).read(file));
+    }
+}
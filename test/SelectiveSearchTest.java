@@ -0,0 +1,76 @@
+import java.util.Random;
+
+/**
+ * Tests for late move reductions and futility pruning
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SelectiveSearchTest
+{
+    /**
+     * @param lateMoveReductions true to enable late move reductions
+     * @param futilityPruning true to enable futility pruning and razoring
+     * @return a new search
+     */
+    private static MiniMax newMiniMax(boolean lateMoveReductions, boolean futilityPruning)
+    {
+        MiniMax miniMax = new MiniMax(16);
+        miniMax.setLateMoveReductions(lateMoveReductions);
+        miniMax.setFutilityPruning(futilityPruning);
+        return miniMax;
+    }
+
+    public void testProvenResultsAreExact()
+    {
+        Random random = new Random(11);
+        for (int game = 0; game < 30; game++)
+        {
+            Board board = Positions.endgame(random);
+            int expected = Positions.solve(board, 0);
+            SearchResult result = newMiniMax(true, true).miniMax(board, ILayout.ROWS * ILayout.COLUMNS);
+
+            Assert.assertTrue("proven " + result, result.isProven());
+            Assert.assertEquals("score of\n" + board, expected, result.getScore());
+            board.move(result.getBestMove());
+            Assert.assertEquals("value after the best move of\n" + board, expected, Positions.solve(board, 1));
+        }
+    }
+
+    public void testSelectiveSearchVisitsFewerNodes()
+    {
+        Board board = new Board();
+        board.move(5);
+        MiniMax plain = newMiniMax(false, false);
+        MiniMax selective = newMiniMax(true, true);
+        SearchResult plainResult = plain.miniMax(board, 7);
+        SearchResult selectiveResult = selective.miniMax(board, 7);
+
+        Assert.assertTrue("nodes " + selectiveResult.getNodes() + " against " + plainResult.getNodes(),
+                selectiveResult.getNodes() < plainResult.getNodes());
+        Assert.assertTrue("reductions", selective.getStatistics().getLateMoveReductions() > 0);
+        Assert.assertTrue("prunes", selective.getStatistics().getFutilityPrunes() + selective.getStatistics().getRazorPrunes() > 0);
+        Assert.assertTrue("legal move", board.isBlank(selectiveResult.getBestMove()));
+    }
+
+    public void testStatisticsStayAtZeroWhenDisabled()
+    {
+        MiniMax miniMax = newMiniMax(false, false);
+        miniMax.miniMax(new Board(), 6);
+        SearchStatistics statistics = miniMax.getStatistics();
+        Assert.assertEquals("reductions", 0, statistics.getLateMoveReductions());
+        Assert.assertEquals("re-searches", 0, statistics.getReSearches());
+        Assert.assertEquals("futility prunes", 0, statistics.getFutilityPrunes());
+        Assert.assertEquals("razor prunes", 0, statistics.getRazorPrunes());
+    }
+
+    public void testStatisticsAreResetOnEverySearch()
+    {
+        MiniMax miniMax = newMiniMax(true, true);
+        miniMax.miniMax(new Board(), 7);
+        long reductions = miniMax.getStatistics().getLateMoveReductions();
+        miniMax.setLateMoveReductions(false);
+        miniMax.miniMax(new Board(), 7);
+        Assert.assertTrue("reductions in the first search", reductions > 0);
+        Assert.assertEquals("reductions in the second search", 0, miniMax.getStatistics().getLateMoveReductions());
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for the sparse board, mostly against Board on the configured board size
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class SparseBoardTest
+{
+    /**
+     * @return a sparse board the size of the configured board
+     */
+    private static SparseBoard newSparseBoard()
+    {
+        return new SparseBoard(ILayout.ROWS, ILayout.COLUMNS, ILayout.WIN_CONDITION_LENGTH);
+    }
+
+    /**
+     * @param board position
+     * @return what both layouts should agree on, leaving out the hashes and the moves on offer, which differ by design
+     */
+    private static String getSharedState(ILayout board)
+    {
+        return "turn " + board.getTurn() + " over " + board.isGameOver()
+                + (board.isGameOver() ? " winner " + board.getWinner() : "") + " evaluation " + board.getEvaluation()
+                + " canWin " + board.canWin(ILayout.ID.X) + "/" + board.canWin(ILayout.ID.O);
+    }
+
+    public void testAgreesWithBoard()
+    {
+        Random random = new Random(15);
+        for (int game = 0; game < 300; game++)
+        {
+            Board board = new Board();
+            SparseBoard sparse = newSparseBoard();
+            int[] moves = new int[ILayout.ROWS * ILayout.COLUMNS];
+            while (!board.isGameOver())
+            {
+                // Only moves near the stones are on offer on the sparse board, and those must be empty cells.
+                int count = sparse.getAvailableMoves(moves);
+                Assert.assertTrue("moves on offer", count > 0);
+                for (int i = 0; i < count; i++)
+                    Assert.assertTrue("blank cell " + moves[i], board.isBlank(moves[i]));
+
+                int move = moves[random.nextInt(count)];
+                board.move(move);
+                sparse.move(move);
+                Assert.assertEquals("state after " + move + " on\n" + board, getSharedState(board), getSharedState(sparse));
+            }
+            Assert.assertTrue("sparse game over", sparse.isGameOver());
+        }
+    }
+
+    public void testUndoRestoresEveryPreviousState()
+    {
+        Random random = new Random(16);
+        for (int game = 0; game < 50; game++)
+        {
+            SparseBoard board = new SparseBoard(19, 19, 5);
+            int[] moves = new int[19 * 19];
+            String[] states = new String[40];
+            long[] hashes = new long[40];
+            int plies = 0;
+            states[0] = Positions.state(board);
+            while (!board.isGameOver() && plies < 39)
+            {
+                int count = board.getAvailableMoves(moves);
+                board.move(moves[random.nextInt(count)]);
+                states[++plies] = Positions.state(board);
+                hashes[plies] = board.getHash();
+            }
+            for (; plies > 0; plies--)
+            {
+                board.undoMove();
+                Assert.assertEquals("state after undoing to ply " + (plies - 1), states[plies - 1], Positions.state(board));
+            }
+            Assert.assertEquals("new board", new SparseBoard(19, 19, 5), board);
+            Assert.assertTrue("distinct hashes", Arrays.stream(hashes).distinct().count() > 1);
+        }
+    }
+
+    public void testSamePositionBySeveralRoutesIsEqual()
+    {
+        SparseBoard first = new SparseBoard(19, 19, 5);
+        SparseBoard second = new SparseBoard(19, 19, 5);
+        for (int move : new int[] {180, 181, 199, 200})
+            first.move(move);
+        for (int move : new int[] {199, 200, 180, 181})
+            second.move(move);
+        Assert.assertEquals("same stones", first, second);
+        Assert.assertEquals("hash", first.getHash(), second.getHash());
+        Assert.assertEquals("hash code", first.hashCode(), second.hashCode());
+
+        SparseBoard clone = (SparseBoard) first.clone();
+        clone.move(220);
+        Assert.assertFalse("clone moved on", clone.equals(first));
+        Assert.assertEquals("original", second, first);
+    }
+
+    public void testUnboundedBoard()
+    {
+        SparseBoard board = SparseBoard.unbounded(5);
+        int[] moves = new int[1];
+        Assert.assertEquals("first move on offer", 1, board.getAvailableMoves(moves));
+        int centre = moves[0];
+
+        // X plays five in a row from the centre, O plays further along the same row.
+        for (int i = 0; i < 5; i++)
+        {
+            Assert.assertFalse("game over after " + i + " stones", board.isGameOver());
+            board.move(centre + i);
+            if (i < 4)
+                board.move(centre + 20 + 2 * i);
+        }
+        Assert.assertTrue("game over", board.isGameOver());
+        Assert.assertEquals("winner", ILayout.ID.X, board.getWinner());
+    }
+
+    public void testSearchesAgreeWithBoard()
+    {
+        Random random = new Random(17);
+        int compared = 0;
+        for (int game = 0; game < 40; game++)
+        {
+            Board board = new Board();
+            SparseBoard sparse = newSparseBoard();
+            for (int move : Positions.play(board, random, 7 + random.nextInt(3)))
+                sparse.move(move);
+            // Only compare positions where every empty cell is on offer on the sparse board too.
+            if (board.isGameOver() || sparse.getAvailableMoveCount() != board.getAvailableMoveCount())
+                continue;
+
+            int depth = ILayout.ROWS * ILayout.COLUMNS;
+            Assert.assertEquals("score of\n" + board, new MiniMax(16).miniMax(board, depth).getScore(),
+                    new MiniMax(16).miniMax(sparse, depth).getScore());
+            compared++;
+        }
+        Assert.assertTrue("positions compared " + compared, compared > 10);
+    }
+
+    public void testInvalidBoardsAndMoves()
+    {
+        Assert.assertThrows("size", IllegalArgumentException.class, () -> new SparseBoard(0, 4, 4));
+        Assert.assertThrows("move", IllegalArgumentException.class, () -> newSparseBoard().move(ILayout.ROWS * ILayout.COLUMNS));
+        Assert.assertThrows("undo", IllegalStateException.class, () -> newSparseBoard().undoMove());
+    }
+}
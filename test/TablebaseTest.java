@@ -0,0 +1,116 @@
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests for the tablebase and its generator
+ * @author Alexandre Rodrigues
+ * @version 1.0 29/11/2023
+ */
+public class TablebaseTest
+{
+    private static Tablebase tablebase;
+
+    /**
+     * @return the tablebase for the configured board, generated on first use
+     */
+    private static synchronized Tablebase getTablebase() throws InterruptedException
+    {
+        if (tablebase == null)
+            tablebase = new TablebaseGenerator().generate(4);
+        return tablebase;
+    }
+
+    /**
+     * @param value score from Positions.solve
+     * @return the matching tablebase value
+     */
+    private static int toTablebaseValue(int value)
+    {
+        return value > 0 ? Tablebase.X_WINS : value < 0 ? Tablebase.O_WINS : Tablebase.DRAW;
+    }
+
+    public void testValuesMatchBruteForce() throws InterruptedException
+    {
+        Tablebase tablebase = getTablebase();
+        Random random = new Random(7);
+        for (int game = 0; game < 100; game++)
+        {
+            Board board = Positions.endgame(random);
+            Assert.assertEquals("value of\n" + board, toTablebaseValue(Positions.solve(board, 0)), tablebase.getValue(board));
+        }
+        Assert.assertEquals("value of the empty board", Tablebase.DRAW, tablebase.getValue(new Board()));
+    }
+
+    public void testBestMoveKeepsTheValue() throws InterruptedException
+    {
+        Tablebase tablebase = getTablebase();
+        Random random = new Random(8);
+        for (int game = 0; game < 100; game++)
+        {
+            Board board = Positions.random(random, random.nextInt(12));
+            if (board.isGameOver())
+            {
+                Assert.assertEquals("best move once the game is over", -1, tablebase.getBestMove(board));
+                continue;
+            }
+
+            int value = tablebase.getValue(board);
+            String state = Positions.state(board);
+            int move = tablebase.getBestMove(board);
+            Assert.assertEquals("board left unchanged", state, Positions.state(board));
+            board.move(move);
+            Assert.assertEquals("value after the best move of\n" + state, value, tablebase.getValue(board));
+        }
+    }
+
+    public void testMissingPositionsAreUnknown()
+    {
+        Tablebase empty = new Tablebase(new long[Tablebase.getEntryCount()]);
+        Board board = new Board();
+        Assert.assertEquals("value", Tablebase.UNKNOWN, empty.getValue(board));
+        Assert.assertEquals("best move", -1, empty.getBestMove(board));
+    }
+
+    public void testSaveAndLoad() throws IOException, InterruptedException
+    {
+        Tablebase tablebase = getTablebase();
+        File file = File.createTempFile("mnk", ".tb");
+        try
+        {
+            tablebase.save(file);
+            Tablebase loaded = Tablebase.load(file);
+            Random random = new Random(9);
+            for (int game = 0; game < 100; game++)
+            {
+                Board board = Positions.random(random, random.nextInt(14));
+                Assert.assertEquals("value of\n" + board, tablebase.getValue(board), loaded.getValue(board));
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    public void testLoadRejectsOtherFiles() throws IOException
+    {
+        File file = File.createTempFile("mnk", ".tb");
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file))))
+            {
+                out.writeInt(42);
+                out.writeInt(1);
+            }
+            Assert.assertThrows("wrong magic number", IOException.class, () -> Tablebase.load(file));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}